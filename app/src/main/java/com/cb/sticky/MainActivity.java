@@ -30,7 +30,7 @@ public class MainActivity extends Activity {
         mRecyclerView.addItemDecoration(new DividerDecoration(this));
         // 添加sticky view 管理
         mRecyclerView.addItemDecoration(new LinearStickyDecoration(adapter,
-                new LinearStickyDecoration.IStickyItem<TextView, StickyData>() {
+                new TextStickyItem<StickyData>() {
                     @Override
                     public TextView createStickyView() {
                         TextView textView = new TextView(MainActivity.this);
@@ -47,8 +47,8 @@ public class MainActivity extends Activity {
                     }
 
                     @Override
-                    public void bindView(TextView view, StickyData data) {
-                        view.setText(data.stickyText);
+                    protected CharSequence getStickyText(StickyData data) {
+                        return data.stickyText;
                     }
 
                     @Override
@@ -60,18 +60,6 @@ public class MainActivity extends Activity {
                         }
                         return null;
                     }
-
-                    @Override
-                    public StickyData obtainHoverData(int headPosition) {
-                        for (int index = headPosition; index >= 0; index--) {
-                            if (data.get(index).type == 1) {
-                                StickyData stickyData = new StickyData();
-                                stickyData.stickyText = "sticky position " + data.get(index).stickyText;
-                                return stickyData;
-                            }
-                        }
-                        return null;
-                    }
                 }));
         mRecyclerView.setAdapter(adapter);
     }
@@ -116,5 +104,10 @@ public class MainActivity extends Activity {
 
     public class StickyData extends LinearStickyDecoration.BaseStickyData {
         String stickyText;
+
+        @Override
+        public Object getContentKey() {
+            return stickyText;
+        }
     }
 }
@@ -0,0 +1,170 @@
+package com.cb.sticky.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模拟在不同数据量、不同section密度的列表中滑动，每次调用为一帧：
+ * 生成可见区域的布局快照，查找悬停的section并计算上推偏移
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StickyScrollBenchmark {
+    private static final int ITEM_HEIGHT = 120;
+    private static final int STICKY_HEIGHT = 80;
+    private static final int VIEWPORT_HEIGHT = 1920;
+    /**
+     * 每帧滑动的距离，与快速fling时的速度相当
+     */
+    private static final int SCROLL_STEP = 97;
+
+    @Param({"10000", "100000", "1000000"})
+    public int itemCount;
+
+    /**
+     * 每个section包含的item数量
+     */
+    @Param({"3", "20", "500"})
+    public int sectionSize;
+
+    private SectionIndex mSectionIndex;
+    /**
+     * 每个item(不包含sticky view)在整个列表中的top值
+     */
+    private int[] mItemTops;
+    private int mContentHeight;
+    private int mScrollY;
+    /**
+     * 所有item都已测量的偏移索引
+     */
+    private ScrollOffsetIndex mOffsetIndex;
+    private final StickyFrameSnapshot mSnapshot = new StickyFrameSnapshot();
+    private final VisibleRows mRows = new VisibleRows();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mSectionIndex = new SectionIndex();
+        mSectionIndex.build(itemCount, new SectionIndex.SectionProber() {
+            @Override
+            public boolean isSectionStart(int position) {
+                return position % sectionSize == 0;
+            }
+        });
+        mItemTops = new int[itemCount];
+        int top = 0;
+        for (int position = 0; position < itemCount; position++) {
+            if (mSectionIndex.isSectionStart(position)) {
+                top += STICKY_HEIGHT;
+            }
+            mItemTops[position] = top;
+            top += ITEM_HEIGHT;
+        }
+        mContentHeight = top;
+        mScrollY = 0;
+        mOffsetIndex = new ScrollOffsetIndex();
+        mOffsetIndex.reset(itemCount);
+        for (int position = 0; position < itemCount; position++) {
+            mOffsetIndex.setHeight(position, ITEM_HEIGHT + (mSectionIndex.isSectionStart(position) ? STICKY_HEIGHT : 0));
+        }
+    }
+
+    @Benchmark
+    public void scrollFrame(Blackhole blackhole) {
+        mScrollY += SCROLL_STEP;
+        if (mScrollY > mContentHeight - VIEWPORT_HEIGHT) {
+            mScrollY = 0;
+        }
+        mRows.layout(mScrollY);
+        StickyFrameSnapshot snapshot = StickyLayoutEngine.fillSnapshot(mSnapshot, mRows);
+        int hoverSection = mSectionIndex.floor(StickyLayoutEngine.resolveHoverPosition(snapshot));
+        blackhole.consume(hoverSection);
+        blackhole.consume(StickyLayoutEngine.computeHoverOffset(snapshot, STICKY_HEIGHT));
+    }
+
+    /**
+     * 每帧计算滚动条的偏移，并把滑动位置换算为position(恢复滑动位置)
+     */
+    @Benchmark
+    public void scrollOffsetQuery(Blackhole blackhole) {
+        mScrollY += SCROLL_STEP;
+        if (mScrollY > mContentHeight - VIEWPORT_HEIGHT) {
+            mScrollY = 0;
+        }
+        int position = mOffsetIndex.positionAt(mScrollY);
+        blackhole.consume(mOffsetIndex.offsetOf(position));
+        blackhole.consume(mOffsetIndex.totalHeight());
+    }
+
+    @Benchmark
+    public void buildSectionIndex(Blackhole blackhole) {
+        SectionIndex index = new SectionIndex();
+        index.build(itemCount, new SectionIndex.SectionProber() {
+            @Override
+            public boolean isSectionStart(int position) {
+                return position % sectionSize == 0;
+            }
+        });
+        blackhole.consume(index.size());
+    }
+
+    /**
+     * 滑动到scrollY时可见的item，相当于RecyclerView在这一帧中的子view
+     */
+    private class VisibleRows implements StickyLayoutEngine.StickyRows {
+        private int mFirstPosition;
+        private int mRowCount;
+        private int mScrollY;
+
+        void layout(int scrollY) {
+            mScrollY = scrollY;
+            int first = Arrays.binarySearch(mItemTops, scrollY);
+            if (first < 0) {
+                // 插入点的前一个item部分可见
+                first = Math.max(-first - 2, 0);
+            }
+            int last = first;
+            while (last + 1 < itemCount && mItemTops[last + 1] < scrollY + VIEWPORT_HEIGHT) {
+                last++;
+            }
+            mFirstPosition = first;
+            mRowCount = last - first + 1;
+        }
+
+        @Override
+        public int getRowCount() {
+            return mRowCount;
+        }
+
+        @Override
+        public int getPosition(int row) {
+            return mFirstPosition + row;
+        }
+
+        @Override
+        public int getTop(int row) {
+            return mItemTops[mFirstPosition + row] - mScrollY;
+        }
+
+        @Override
+        public int getStickyHeight(int row) {
+            return mSectionIndex.isSectionStart(mFirstPosition + row) ? STICKY_HEIGHT : StickyLayoutEngine.NO_STICKY;
+        }
+
+        @Override
+        public Object getStickyData(int row) {
+            return null;
+        }
+    }
+}
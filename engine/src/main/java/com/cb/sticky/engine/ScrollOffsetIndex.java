@@ -0,0 +1,220 @@
+package com.cb.sticky.engine;
+
+import java.util.Arrays;
+
+/**
+ * 按position记录item高度(包含sticky view、分割线等装饰的高度)的前缀和索引，用于计算精确的滑动偏移
+ * <p>
+ * ①使用两棵树状数组(Fenwick tree)分别保存已测量的高度之和以及已测量的数量，
+ * 未测量的position使用已测量高度的平均值估算，估算值变化时不需要重建
+ * ②查询position的顶部偏移({@link #offsetOf(int)})、偏移所在的position({@link #positionAt(long)})、更新高度都为O(log n)
+ * ③adapter插入、删除、移动时平移高度并重建，为O(n)
+ */
+public class ScrollOffsetIndex {
+    public static final int NO_POSITION = -1;
+    /**
+     * 未测量的高度
+     */
+    private static final int UNMEASURED = -1;
+
+    /**
+     * position -> 测量的高度，未测量为{@link #UNMEASURED}
+     */
+    private int[] mHeights = new int[0];
+    /**
+     * 树状数组，下标从1开始
+     */
+    private long[] mSumTree = new long[1];
+    private int[] mCountTree = new int[1];
+    private int mSize;
+    private long mMeasuredSum;
+    private int mMeasuredCount;
+    /**
+     * 还没有任何测量结果时使用的估算高度
+     */
+    private int mDefaultHeight;
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * 没有任何已测量的position时，使用该高度估算
+     */
+    public void setDefaultHeight(int defaultHeight) {
+        mDefaultHeight = Math.max(defaultHeight, 0);
+    }
+
+    /**
+     * 清空所有高度，重新设置数量
+     */
+    public void reset(int size) {
+        mSize = Math.max(size, 0);
+        if (mHeights.length < mSize) {
+            mHeights = new int[mSize];
+        }
+        Arrays.fill(mHeights, 0, mSize, UNMEASURED);
+        rebuild();
+    }
+
+    /**
+     * @return 未测量时返回-1
+     */
+    public int getHeight(int position) {
+        return position >= 0 && position < mSize ? mHeights[position] : UNMEASURED;
+    }
+
+    /**
+     * 更新position的测量高度(包含装饰)
+     */
+    public void setHeight(int position, int height) {
+        if (position < 0 || position >= mSize) return;
+        height = Math.max(height, 0);
+        int oldHeight = mHeights[position];
+        if (oldHeight == height) return;
+        mHeights[position] = height;
+        if (oldHeight == UNMEASURED) {
+            update(position, height, 1);
+        } else {
+            update(position, height - oldHeight, 0);
+        }
+    }
+
+    /**
+     * 区间内的高度需要重新测量
+     */
+    public void invalidateRange(int positionStart, int itemCount) {
+        int end = Math.min(positionStart + itemCount, mSize);
+        for (int i = Math.max(positionStart, 0); i < end; i++) {
+            int oldHeight = mHeights[i];
+            if (oldHeight != UNMEASURED) {
+                mHeights[i] = UNMEASURED;
+                update(i, -oldHeight, -1);
+            }
+        }
+    }
+
+    public void insert(int positionStart, int itemCount) {
+        if (itemCount <= 0 || positionStart < 0 || positionStart > mSize) return;
+        if (mHeights.length < mSize + itemCount) {
+            mHeights = Arrays.copyOf(mHeights, Math.max(mSize + itemCount, mHeights.length * 2));
+        }
+        System.arraycopy(mHeights, positionStart, mHeights, positionStart + itemCount, mSize - positionStart);
+        Arrays.fill(mHeights, positionStart, positionStart + itemCount, UNMEASURED);
+        mSize += itemCount;
+        rebuild();
+    }
+
+    public void remove(int positionStart, int itemCount) {
+        if (itemCount <= 0 || positionStart < 0 || positionStart >= mSize) return;
+        int end = Math.min(positionStart + itemCount, mSize);
+        System.arraycopy(mHeights, end, mHeights, positionStart, mSize - end);
+        mSize -= end - positionStart;
+        rebuild();
+    }
+
+    public void move(int fromPosition, int toPosition) {
+        if (fromPosition < 0 || fromPosition >= mSize || toPosition < 0 || toPosition >= mSize
+                || fromPosition == toPosition) {
+            return;
+        }
+        int height = mHeights[fromPosition];
+        if (fromPosition < toPosition) {
+            System.arraycopy(mHeights, fromPosition + 1, mHeights, fromPosition, toPosition - fromPosition);
+        } else {
+            System.arraycopy(mHeights, toPosition, mHeights, toPosition + 1, fromPosition - toPosition);
+        }
+        mHeights[toPosition] = height;
+        rebuild();
+    }
+
+    /**
+     * 未测量的position所使用的估算高度：已测量高度的平均值
+     */
+    public int getEstimatedHeight() {
+        return mMeasuredCount > 0 ? (int) (mMeasuredSum / mMeasuredCount) : mDefaultHeight;
+    }
+
+    /**
+     * position顶部(包含装饰)距离列表顶部的偏移
+     */
+    public long offsetOf(int position) {
+        int count = Math.max(Math.min(position, mSize), 0);
+        long sum = 0;
+        int measured = 0;
+        for (int i = count; i > 0; i -= i & -i) {
+            sum += mSumTree[i];
+            measured += mCountTree[i];
+        }
+        return sum + (long) (count - measured) * getEstimatedHeight();
+    }
+
+    /**
+     * 所有item的总高度
+     */
+    public long totalHeight() {
+        return mMeasuredSum + (long) (mSize - mMeasuredCount) * getEstimatedHeight();
+    }
+
+    /**
+     * 偏移所在的position，即满足offsetOf(position) &lt;= offset的最大position
+     *
+     * @return 没有item时返回{@link #NO_POSITION}
+     */
+    public int positionAt(long offset) {
+        if (mSize == 0) return NO_POSITION;
+        int estimated = getEstimatedHeight();
+        int position = 0;
+        long accumulated = 0;
+        for (int step = Integer.highestOneBit(mSize); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next > mSize) continue;
+            // 树状数组的节点next覆盖了(position, next]共step个position
+            long nodeHeight = mSumTree[next] + (long) (step - mCountTree[next]) * estimated;
+            if (accumulated + nodeHeight <= offset) {
+                position = next;
+                accumulated += nodeHeight;
+            }
+        }
+        return Math.min(position, mSize - 1);
+    }
+
+    private void update(int position, long heightDelta, int countDelta) {
+        mMeasuredSum += heightDelta;
+        mMeasuredCount += countDelta;
+        for (int i = position + 1; i <= mSize; i += i & -i) {
+            mSumTree[i] += heightDelta;
+            mCountTree[i] += countDelta;
+        }
+    }
+
+    /**
+     * 按照mHeights线性时间重建树状数组
+     */
+    private void rebuild() {
+        if (mSumTree.length < mSize + 1) {
+            int capacity = Math.max(mSize + 1, mSumTree.length * 2);
+            mSumTree = new long[capacity];
+            mCountTree = new int[capacity];
+        } else {
+            Arrays.fill(mSumTree, 0, mSize + 1, 0);
+            Arrays.fill(mCountTree, 0, mSize + 1, 0);
+        }
+        mMeasuredSum = 0;
+        mMeasuredCount = 0;
+        for (int i = 1; i <= mSize; i++) {
+            int height = mHeights[i - 1];
+            if (height != UNMEASURED) {
+                mSumTree[i] += height;
+                mCountTree[i] += 1;
+                mMeasuredSum += height;
+                mMeasuredCount++;
+            }
+            int parent = i + (i & -i);
+            if (parent <= mSize) {
+                mSumTree[parent] += mSumTree[i];
+                mCountTree[parent] += mCountTree[i];
+            }
+        }
+    }
+}
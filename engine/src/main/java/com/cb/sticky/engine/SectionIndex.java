@@ -0,0 +1,328 @@
+package com.cb.sticky.engine;
+
+import java.util.Arrays;
+
+/**
+ * 有序的section起点索引(即：所有需要嵌入sticky view的position)
+ * <p>
+ * ①通过{@link SectionProber}按position顺序探测建立索引，可以一次完成({@link #build(int, SectionProber)})，
+ * 也可以分批完成({@link #begin(int)}、{@link #probe(int, SectionProber)})，只有已探测的前缀区间可以查询
+ * ②建立完成之后随adapter的局部刷新增量更新，只重新探测变化的区间，以及前一个item发生了变化的边界position；
+ * 建立过程中发生局部刷新时，丢弃变化位置之后已探测的部分，之后重新探测
+ * ③查找某个position所属的section起点为二分查找，O(log n)
+ */
+public class SectionIndex {
+    public static final int NO_POSITION = -1;
+
+    /**
+     * 判断某个position是否为section的起点
+     */
+    public interface SectionProber {
+        boolean isSectionStart(int position);
+    }
+
+    private int[] mStarts = new int[16];
+    private int mSize;
+    private int mItemCount;
+    /**
+     * [0, mProbedCount)区间内的position已经探测完成
+     */
+    private int mProbedCount;
+    private boolean mBuilding;
+    private boolean mBuilt;
+
+    /**
+     * 所有position都已经探测完成
+     */
+    public boolean isBuilt() {
+        return mBuilt;
+    }
+
+    /**
+     * 正在分批建立索引
+     */
+    public boolean isBuilding() {
+        return mBuilding;
+    }
+
+    /**
+     * 已经探测完成的position数量，这些position可以直接查询
+     */
+    public int getProbedCount() {
+        return mProbedCount;
+    }
+
+    /**
+     * position是否已经探测完成，未完成时{@link #isSectionStart(int)}、{@link #floor(int)}等查询的结果不可信
+     */
+    public boolean isProbed(int position) {
+        return mBuilt || position < mProbedCount;
+    }
+
+    /**
+     * 标记为失效，下次使用前需要重新建立
+     */
+    public void invalidate() {
+        mBuilt = false;
+        mBuilding = false;
+        mSize = 0;
+        mItemCount = 0;
+        mProbedCount = 0;
+    }
+
+    public void build(int itemCount, SectionProber prober) {
+        begin(itemCount);
+        probe(itemCount, prober);
+    }
+
+    /**
+     * 开始分批建立索引，之后通过{@link #probe(int, SectionProber)}逐批探测
+     */
+    public void begin(int itemCount) {
+        mSize = 0;
+        mItemCount = Math.max(itemCount, 0);
+        mProbedCount = 0;
+        mBuilt = mItemCount == 0;
+        mBuilding = !mBuilt;
+    }
+
+    /**
+     * 继续探测最多maxCount个position
+     *
+     * @return 是否已经全部探测完成
+     */
+    public boolean probe(int maxCount, SectionProber prober) {
+        if (!mBuilding) return mBuilt;
+        int end = (int) Math.min((long) mProbedCount + Math.max(maxCount, 0), mItemCount);
+        for (int position = mProbedCount; position < end; position++) {
+            if (prober.isSectionStart(position)) {
+                append(position);
+            }
+        }
+        mProbedCount = end;
+        if (mProbedCount >= mItemCount) {
+            mBuilding = false;
+            mBuilt = true;
+        }
+        return mBuilt;
+    }
+
+    /**
+     * 使用已经排好序的起点建立索引，不需要逐个探测position
+     *
+     * @param starts    严格递增的section起点
+     * @param itemCount 列表中item的数量
+     */
+    public void build(int[] starts, int count, int itemCount) {
+        if (mStarts.length < count) {
+            mStarts = new int[Math.max(count, 16)];
+        }
+        System.arraycopy(starts, 0, mStarts, 0, count);
+        mSize = count;
+        mItemCount = itemCount;
+        mProbedCount = itemCount;
+        mBuilding = false;
+        mBuilt = true;
+    }
+
+    /**
+     * section的数量
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * 第index个section的起点
+     */
+    public int get(int index) {
+        return mStarts[index];
+    }
+
+    /**
+     * position是否为section的起点
+     */
+    public boolean isSectionStart(int position) {
+        return binarySearch(position) >= 0;
+    }
+
+    /**
+     * 获取position所属的section起点，即小于等于position的最大起点
+     *
+     * @return 没有则返回{@link #NO_POSITION}
+     */
+    public int floor(int position) {
+        int index = sectionOf(position);
+        return index >= 0 ? mStarts[index] : NO_POSITION;
+    }
+
+    /**
+     * 获取大于position的最小起点
+     *
+     * @return 没有则返回{@link #NO_POSITION}
+     */
+    public int next(int position) {
+        int index = sectionOf(position) + 1;
+        return index < mSize ? mStarts[index] : NO_POSITION;
+    }
+
+    /**
+     * 获取position所属的section的序号
+     *
+     * @return 在首个section之前则返回-1
+     */
+    public int sectionOf(int position) {
+        int index = binarySearch(position);
+        return index >= 0 ? index : ~index - 1;
+    }
+
+    /**
+     * 探测插入的区间，原来位于positionStart的item(插入之后位于positionStart + itemCount)也需要重新探测
+     */
+    public void insertRange(int positionStart, int itemCount, SectionProber prober) {
+        if (itemCount <= 0) return;
+        mItemCount += itemCount;
+        if (!mBuilt) {
+            truncate(positionStart);
+            return;
+        }
+        mProbedCount = mItemCount;
+        shiftForInsert(positionStart, itemCount);
+        probeRange(positionStart, itemCount, prober);
+        reprobe(positionStart + itemCount, prober);
+    }
+
+    /**
+     * 删除区间内的起点，删除之后位于positionStart的item需要重新探测
+     */
+    public void removeRange(int positionStart, int itemCount, SectionProber prober) {
+        if (itemCount <= 0) return;
+        mItemCount = Math.max(mItemCount - itemCount, 0);
+        if (!mBuilt) {
+            truncate(positionStart);
+            return;
+        }
+        mProbedCount = mItemCount;
+        shiftForRemove(positionStart, itemCount);
+        reprobe(positionStart, prober);
+    }
+
+    /**
+     * 重新探测内容变化的区间，区间之后的第一个item也需要重新探测
+     */
+    public void changeRange(int positionStart, int itemCount, SectionProber prober) {
+        if (itemCount <= 0) return;
+        if (!mBuilt) {
+            truncate(positionStart);
+            return;
+        }
+        int start = lowerBound(positionStart);
+        int end = lowerBound(positionStart + itemCount);
+        removeAtRange(start, end - start);
+        probeRange(positionStart, itemCount, prober);
+        reprobe(positionStart + itemCount, prober);
+    }
+
+    /**
+     * 探测被移动的区间，移出处的下一个item以及移入处的下一个item也需要重新探测
+     */
+    public void moveRange(int fromPosition, int toPosition, int itemCount, SectionProber prober) {
+        if (itemCount <= 0 || fromPosition == toPosition) return;
+        if (!mBuilt) {
+            truncate(Math.min(fromPosition, toPosition));
+            return;
+        }
+        shiftForRemove(fromPosition, itemCount);
+        shiftForInsert(toPosition, itemCount);
+        probeRange(toPosition, itemCount, prober);
+        reprobe(fromPosition < toPosition ? fromPosition : fromPosition + itemCount, prober);
+        reprobe(toPosition + itemCount, prober);
+    }
+
+    /**
+     * 分批建立的过程中，position及之后已经探测的部分失效，之后重新探测
+     */
+    private void truncate(int position) {
+        if (!mBuilding) return;
+        if (position < mProbedCount) {
+            mSize = lowerBound(position);
+            mProbedCount = Math.max(position, 0);
+        }
+        if (mProbedCount >= mItemCount) {
+            mProbedCount = mItemCount;
+            mBuilding = false;
+            mBuilt = true;
+        }
+    }
+
+    private void shiftForInsert(int positionStart, int itemCount) {
+        for (int i = lowerBound(positionStart); i < mSize; i++) {
+            mStarts[i] += itemCount;
+        }
+    }
+
+    private void shiftForRemove(int positionStart, int itemCount) {
+        int start = lowerBound(positionStart);
+        int end = lowerBound(positionStart + itemCount);
+        removeAtRange(start, end - start);
+        for (int i = start; i < mSize; i++) {
+            mStarts[i] -= itemCount;
+        }
+    }
+
+    /**
+     * 前一个item发生了变化，重新探测position是否为起点
+     */
+    private void reprobe(int position, SectionProber prober) {
+        int index = binarySearch(position);
+        if (index >= 0) {
+            removeAtRange(index, 1);
+        }
+        // 边界position可能已经超出了列表的范围(如插入到末尾)
+        if (position < mItemCount) {
+            probeRange(position, 1, prober);
+        }
+    }
+
+    /**
+     * 重新探测[positionStart, positionStart + itemCount)区间，该区间内不能有已存在的起点
+     */
+    private void probeRange(int positionStart, int itemCount, SectionProber prober) {
+        int insertAt = lowerBound(positionStart);
+        for (int position = positionStart; position < positionStart + itemCount; position++) {
+            if (prober.isSectionStart(position)) {
+                insertAt(insertAt++, position);
+            }
+        }
+    }
+
+    private void append(int position) {
+        insertAt(mSize, position);
+    }
+
+    private void insertAt(int index, int position) {
+        if (mSize == mStarts.length) {
+            mStarts = Arrays.copyOf(mStarts, mSize * 2);
+        }
+        if (index < mSize) {
+            System.arraycopy(mStarts, index, mStarts, index + 1, mSize - index);
+        }
+        mStarts[index] = position;
+        mSize++;
+    }
+
+    private void removeAtRange(int index, int count) {
+        if (count <= 0) return;
+        System.arraycopy(mStarts, index + count, mStarts, index, mSize - index - count);
+        mSize -= count;
+    }
+
+    private int lowerBound(int position) {
+        int index = binarySearch(position);
+        return index >= 0 ? index : ~index;
+    }
+
+    private int binarySearch(int position) {
+        return Arrays.binarySearch(mStarts, 0, mSize, position);
+    }
+}
@@ -0,0 +1,263 @@
+package com.cb.sticky.engine;
+
+import java.util.Arrays;
+
+/**
+ * 以int(position)为key的sticky数据缓存，用来替代HashMap&lt;Integer, ?&gt;
+ * <p>
+ * ①key使用int数组有序保存，查找为二分查找，不会产生装箱对象
+ * ②只保留可见区域上下一个窗口内的数据({@link #trimToWindow(int, int)})，防止长列表滑动时缓存无限增长
+ * ③提供缓存大小以及淘汰次数的统计
+ * ④支持按照adapter的局部刷新平移、删除部分区间的数据，不必在每次刷新时全部清空；
+ * 是否为section起点常常取决于前一个item(如按key分组)，所以前一个item发生变化的边界position也会被删除
+ * ⑤数据被淘汰、删除或者覆盖时，通过{@link OnRemovedListener}通知，以便释放与之关联的资源
+ */
+public class StickyCache<T> {
+    /**
+     * 数据被移出缓存的回调
+     */
+    public interface OnRemovedListener<T> {
+        void onRemoved(int key, T value);
+    }
+
+    /**
+     * 默认在可见区域上下各保留的position数量
+     */
+    public static final int DEFAULT_WINDOW = 30;
+
+    private int[] mKeys;
+    private Object[] mValues;
+    private int mSize;
+    /**
+     * 在可见区域上下各保留的position数量
+     */
+    private int mWindow = DEFAULT_WINDOW;
+    /**
+     * 被窗口淘汰的数据总数
+     */
+    private long mEvictionCount;
+    private OnRemovedListener<T> mOnRemovedListener;
+
+    public StickyCache() {
+        this(16);
+    }
+
+    public StickyCache(int initialCapacity) {
+        mKeys = new int[Math.max(initialCapacity, 4)];
+        mValues = new Object[mKeys.length];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int key) {
+        int index = binarySearch(key);
+        return index >= 0 ? (T) mValues[index] : null;
+    }
+
+    public void put(int key, T value) {
+        int index = binarySearch(key);
+        if (index >= 0) {
+            Object oldValue = mValues[index];
+            mValues[index] = value;
+            if (oldValue != value) {
+                dispatchRemoved(key, oldValue);
+            }
+            return;
+        }
+        index = ~index;
+        if (mSize == mKeys.length) {
+            int newCapacity = mSize * 2;
+            mKeys = Arrays.copyOf(mKeys, newCapacity);
+            mValues = Arrays.copyOf(mValues, newCapacity);
+        }
+        if (index < mSize) {
+            System.arraycopy(mKeys, index, mKeys, index + 1, mSize - index);
+            System.arraycopy(mValues, index, mValues, index + 1, mSize - index);
+        }
+        mKeys[index] = key;
+        mValues[index] = value;
+        mSize++;
+    }
+
+    public void remove(int key) {
+        int index = binarySearch(key);
+        if (index >= 0) {
+            removeAtRange(index, 1, true);
+        }
+    }
+
+    public void clear() {
+        removeAtRange(0, mSize, true);
+    }
+
+    public void setOnRemovedListener(OnRemovedListener<T> listener) {
+        mOnRemovedListener = listener;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public int keyAt(int index) {
+        return mKeys[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T valueAt(int index) {
+        return (T) mValues[index];
+    }
+
+    public long getEvictionCount() {
+        return mEvictionCount;
+    }
+
+    public void setWindow(int window) {
+        mWindow = Math.max(window, 0);
+    }
+
+    public int getWindow() {
+        return mWindow;
+    }
+
+    /**
+     * 淘汰掉[firstVisible - window, lastVisible + window]之外的数据
+     *
+     * @return 本次淘汰的数量
+     */
+    public int trimToWindow(int firstVisible, int lastVisible) {
+        if (mSize == 0) return 0;
+        int low = firstVisible - mWindow;
+        int high = lastVisible + mWindow;
+        // 由于key有序，只需要找到窗口的上下边界，两端整段删除
+        int start = lowerBound(low);
+        int end = lowerBound(high + 1);
+        int evicted = start + (mSize - end);
+        if (evicted <= 0) return 0;
+        removeAtRange(end, mSize - end, true);
+        removeAtRange(0, start, true);
+        mEvictionCount += evicted;
+        return evicted;
+    }
+
+    /**
+     * 在positionStart处插入了itemCount个item，之后的key整体后移；
+     * 原来位于positionStart的item(插入之后位于positionStart + itemCount)的前一个item变了，删除其数据
+     */
+    public void insertRange(int positionStart, int itemCount) {
+        if (itemCount <= 0) return;
+        shiftForInsert(positionStart, itemCount);
+        remove(positionStart + itemCount);
+    }
+
+    /**
+     * 删除了[positionStart, positionStart + itemCount)区间的item，删除区间内的数据并将之后的key整体前移；
+     * 删除之后位于positionStart的item的前一个item变了，删除其数据
+     */
+    public void removeRange(int positionStart, int itemCount) {
+        if (itemCount <= 0) return;
+        shiftForRemove(positionStart, itemCount, true);
+        remove(positionStart);
+    }
+
+    private void shiftForInsert(int positionStart, int itemCount) {
+        for (int i = lowerBound(positionStart); i < mSize; i++) {
+            mKeys[i] += itemCount;
+        }
+    }
+
+    private void shiftForRemove(int positionStart, int itemCount, boolean notify) {
+        int start = lowerBound(positionStart);
+        int end = lowerBound(positionStart + itemCount);
+        removeAtRange(start, end - start, notify);
+        for (int i = start; i < mSize; i++) {
+            mKeys[i] -= itemCount;
+        }
+    }
+
+    /**
+     * [positionStart, positionStart + itemCount)区间内的item内容发生变化，只删除该区间内的数据
+     */
+    public void invalidateRange(int positionStart, int itemCount) {
+        if (itemCount <= 0) return;
+        int start = lowerBound(positionStart);
+        int end = lowerBound(positionStart + itemCount);
+        removeAtRange(start, end - start, true);
+    }
+
+    /**
+     * 将[fromPosition, fromPosition + itemCount)区间的item移动到toPosition处；
+     * 移出处的下一个item、被移动的首个item以及移入处的下一个item，其前一个item都变了，删除其数据
+     */
+    @SuppressWarnings("unchecked")
+    public void moveRange(int fromPosition, int toPosition, int itemCount) {
+        if (itemCount <= 0 || fromPosition == toPosition) return;
+        int start = lowerBound(fromPosition);
+        int end = lowerBound(fromPosition + itemCount);
+        int movedCount = end - start;
+        int[] movedKeys = null;
+        Object[] movedValues = null;
+        if (movedCount > 0) {
+            movedKeys = Arrays.copyOfRange(mKeys, start, end);
+            movedValues = Arrays.copyOfRange(mValues, start, end);
+        }
+        shiftForRemove(fromPosition, itemCount, false);
+        shiftForInsert(toPosition, itemCount);
+        for (int i = 0; i < movedCount; i++) {
+            put(movedKeys[i] - fromPosition + toPosition, (T) movedValues[i]);
+        }
+        // 移出处之后的item：移出之后位于fromPosition，再在toPosition处插入时可能被后移
+        remove(fromPosition < toPosition ? fromPosition : fromPosition + itemCount);
+        remove(toPosition);
+        remove(toPosition + itemCount);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void dispatchRemoved(int key, Object value) {
+        if (mOnRemovedListener != null && value != null) {
+            mOnRemovedListener.onRemoved(key, (T) value);
+        }
+    }
+
+    private void removeAtRange(int index, int count, boolean notify) {
+        if (count <= 0) return;
+        if (notify && mOnRemovedListener != null) {
+            for (int i = index; i < index + count; i++) {
+                dispatchRemoved(mKeys[i], mValues[i]);
+            }
+        }
+        int tail = mSize - index - count;
+        if (tail > 0) {
+            System.arraycopy(mKeys, index + count, mKeys, index, tail);
+            System.arraycopy(mValues, index + count, mValues, index, tail);
+        }
+        Arrays.fill(mValues, mSize - count, mSize, null);
+        mSize -= count;
+    }
+
+    /**
+     * 第一个key >= position的下标
+     */
+    private int lowerBound(int position) {
+        int index = binarySearch(position);
+        return index >= 0 ? index : ~index;
+    }
+
+    /**
+     * 二分查找，找不到时返回插入点的取反值
+     */
+    private int binarySearch(int key) {
+        int lo = 0;
+        int hi = mSize - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int midVal = mKeys[mid];
+            if (midVal < key) {
+                lo = mid + 1;
+            } else if (midVal > key) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return ~lo;
+    }
+}
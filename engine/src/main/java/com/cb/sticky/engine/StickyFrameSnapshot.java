@@ -0,0 +1,77 @@
+package com.cb.sticky.engine;
+
+import java.util.Arrays;
+
+/**
+ * 一帧内可见的sticky view布局快照
+ * <p>
+ * 每帧只遍历一次子view，记录可见的sticky view的position、top、height，
+ * 悬停视图、上推偏移以及拦截点击区域的计算都从该快照中读取，不再重复遍历子view
+ */
+public class StickyFrameSnapshot {
+    /**
+     * 可见的sticky view数量
+     */
+    public int count;
+    /**
+     * 可见区域的position范围，没有可见的子view时为{@link SectionIndex#NO_POSITION}
+     */
+    public int firstVisiblePosition = SectionIndex.NO_POSITION;
+    public int lastVisiblePosition = SectionIndex.NO_POSITION;
+    /**
+     * sticky view所在item的position
+     */
+    public int[] positions = new int[8];
+    /**
+     * sticky view的顶部位置(item的top - sticky view的高度)
+     */
+    public int[] tops = new int[8];
+    public int[] heights = new int[8];
+    public Object[] data = new Object[8];
+
+    public void reset() {
+        Arrays.fill(data, 0, count, null);
+        count = 0;
+        firstVisiblePosition = SectionIndex.NO_POSITION;
+        lastVisiblePosition = SectionIndex.NO_POSITION;
+    }
+
+    /**
+     * 记录一个可见的子view的position
+     */
+    public void addVisiblePosition(int position) {
+        if (position < 0) return;
+        if (firstVisiblePosition == SectionIndex.NO_POSITION || position < firstVisiblePosition) {
+            firstVisiblePosition = position;
+        }
+        if (position > lastVisiblePosition) {
+            lastVisiblePosition = position;
+        }
+    }
+
+    public void addSticky(int position, int top, int height, Object stickyData) {
+        if (count == positions.length) {
+            int newCapacity = count * 2;
+            positions = Arrays.copyOf(positions, newCapacity);
+            tops = Arrays.copyOf(tops, newCapacity);
+            heights = Arrays.copyOf(heights, newCapacity);
+            data = Arrays.copyOf(data, newCapacity);
+        }
+        positions[count] = position;
+        tops[count] = top;
+        heights[count] = height;
+        data[count] = stickyData;
+        count++;
+    }
+
+    public boolean hasVisibleChild() {
+        return lastVisiblePosition != SectionIndex.NO_POSITION;
+    }
+
+    /**
+     * 第index个可见的sticky view的top，不存在则返回-1
+     */
+    public int topAt(int index) {
+        return index < count ? tops[index] : -1;
+    }
+}
@@ -0,0 +1,111 @@
+package com.cb.sticky.engine;
+
+/**
+ * 与Android无关的悬停布局计算
+ * <p>
+ * ①输入为一组抽象的行(position, top, sticky高度)，输出为{@link StickyFrameSnapshot}
+ * ②悬停视图所属的position、上推偏移以及拦截点击区域均从快照中计算，不依赖View、Canvas以及RecyclerView
+ * ③decoration在每帧中遍历子view生成快照，之后的计算全部交给该类，所以可以直接在JVM上做基准测试
+ */
+public final class StickyLayoutEngine {
+    /**
+     * 行之上没有sticky view
+     */
+    public static final int NO_STICKY = -1;
+
+    /**
+     * 一帧内按照布局顺序排列的行
+     */
+    public interface StickyRows {
+        int getRowCount();
+
+        int getPosition(int row);
+
+        /**
+         * 行(不包含sticky view)的top值
+         */
+        int getTop(int row);
+
+        /**
+         * 行之上的sticky view的高度，不是section起点则返回{@link #NO_STICKY}；
+         * 高度为0的sticky view依然属于section起点，会被加入快照
+         */
+        int getStickyHeight(int row);
+
+        /**
+         * 行之上的sticky view对应的数据，会被保存到{@link StickyFrameSnapshot#data}中
+         */
+        Object getStickyData(int row);
+    }
+
+    private StickyLayoutEngine() {
+    }
+
+    /**
+     * 遍历一次所有行，生成本帧的布局快照
+     */
+    public static StickyFrameSnapshot fillSnapshot(StickyFrameSnapshot snapshot, StickyRows rows) {
+        snapshot.reset();
+        for (int row = 0, count = rows.getRowCount(); row < count; row++) {
+            int position = rows.getPosition(row);
+            snapshot.addVisiblePosition(position);
+            int height = rows.getStickyHeight(row);
+            if (height != NO_STICKY) {
+                snapshot.addSticky(position, rows.getTop(row) - height, height, rows.getStickyData(row));
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * 是否悬停上一个section：首个可见的sticky view完全可见(top>0)时，悬停的是上一个section的视图
+     */
+    public static boolean isHoverPreviousSection(StickyFrameSnapshot snapshot) {
+        return snapshot.count > 0 && snapshot.tops[0] > 0;
+    }
+
+    /**
+     * 获取需要查找悬停数据的position，快照中没有sticky view时返回首个可见的position
+     *
+     * @return 查找到的悬停数据应当属于该position所在的section
+     */
+    public static int resolveHoverPosition(StickyFrameSnapshot snapshot) {
+        if (snapshot.count <= 0) {
+            return snapshot.firstVisiblePosition;
+        }
+        return snapshot.tops[0] > 0 ? snapshot.positions[0] - 1 : snapshot.positions[0];
+    }
+
+    /**
+     * 计算悬停视图被下一个sticky view向上推动的距离
+     *
+     * @param hoverHeight 悬停视图的高度
+     * @return 0表示悬停视图没有被推动
+     */
+    public static int computeHoverOffset(StickyFrameSnapshot snapshot, int hoverHeight) {
+        if (snapshot.count <= 0) {
+            return 0;
+        }
+        int currentViewTop = snapshot.tops[0];
+        // 当前的首个sticky view的顶部值大于0，并且其小于悬停视图的高度
+        // (说明：下个sticky view将要被盖在悬停的视图下面，故需要将悬停的视图联动)
+        if (currentViewTop > 0 && currentViewTop <= hoverHeight) {
+            return hoverHeight - currentViewTop;
+        }
+        // 下一个sticky view，在当前悬停的视图还没有被remove的情况下，需要与下一个sticky view联动
+        // (比如悬停的视图很高，下一个sticky view高度很小，
+        // 此时currentViewTop < 0并且下一个sticky view距离顶部的距离已经小于当前悬停的view的高度)
+        int nextStickyViewTop = snapshot.topAt(1);
+        if (nextStickyViewTop > 0 && nextStickyViewTop <= hoverHeight) {
+            return hoverHeight - nextStickyViewTop;
+        }
+        return 0;
+    }
+
+    /**
+     * 悬停视图在本帧中拦截点击事件的区域底部
+     */
+    public static int computeInterceptBottom(int hoverHeight, int hoverOffset) {
+        return Math.max(hoverHeight - hoverOffset, 0);
+    }
+}
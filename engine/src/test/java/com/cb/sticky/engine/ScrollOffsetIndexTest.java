@@ -0,0 +1,169 @@
+package com.cb.sticky.engine;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 校验偏移索引在测量、插入、删除、移动之后的前缀和以及按偏移查找position
+ */
+public class ScrollOffsetIndexTest {
+    private ScrollOffsetIndex mIndex;
+
+    @Before
+    public void setUp() {
+        mIndex = new ScrollOffsetIndex();
+        mIndex.setDefaultHeight(50);
+        mIndex.reset(10);
+    }
+
+    @Test
+    public void unmeasuredUsesDefaultHeight() {
+        assertEquals(0, mIndex.offsetOf(0));
+        assertEquals(250, mIndex.offsetOf(5));
+        assertEquals(500, mIndex.totalHeight());
+        assertEquals(-1, mIndex.getHeight(3));
+    }
+
+    @Test
+    public void unmeasuredUsesAverageOfMeasured() {
+        mIndex.setHeight(0, 100);
+        mIndex.setHeight(1, 200);
+        assertEquals(150, mIndex.getEstimatedHeight());
+        assertEquals(300 + 3 * 150, mIndex.offsetOf(5));
+        assertEquals(300 + 8 * 150, mIndex.totalHeight());
+    }
+
+    @Test
+    public void invalidateRange() {
+        measureAll(100);
+        mIndex.setHeight(3, 400);
+        mIndex.invalidateRange(3, 1);
+        assertEquals(-1, mIndex.getHeight(3));
+        assertEquals(100, mIndex.getEstimatedHeight());
+        assertEquals(1000, mIndex.totalHeight());
+    }
+
+    @Test
+    public void insert() {
+        measureIncreasing();
+        mIndex.insert(2, 3);
+        assertEquals(13, mIndex.size());
+        assertEquals(10, mIndex.getHeight(0));
+        assertEquals(20, mIndex.getHeight(1));
+        assertEquals(-1, mIndex.getHeight(2));
+        assertEquals(-1, mIndex.getHeight(4));
+        assertEquals(30, mIndex.getHeight(5));
+        assertEquals(100, mIndex.getHeight(12));
+        // 插入的3个position使用平均值55估算
+        assertEquals(10 + 20 + 3 * 55, mIndex.offsetOf(5));
+        assertEquals(550 + 3 * 55, mIndex.totalHeight());
+    }
+
+    @Test
+    public void insertAtEnd() {
+        measureIncreasing();
+        mIndex.insert(10, 2);
+        assertEquals(12, mIndex.size());
+        assertEquals(550, mIndex.offsetOf(10));
+        assertEquals(-1, mIndex.getHeight(11));
+    }
+
+    @Test
+    public void remove() {
+        measureIncreasing();
+        mIndex.remove(2, 3);
+        assertEquals(7, mIndex.size());
+        assertEquals(20, mIndex.getHeight(1));
+        assertEquals(60, mIndex.getHeight(2));
+        assertEquals(10 + 20 + 60, mIndex.offsetOf(3));
+        assertEquals(550 - 30 - 40 - 50, mIndex.totalHeight());
+    }
+
+    @Test
+    public void removeClampsToSize() {
+        measureIncreasing();
+        mIndex.remove(8, 5);
+        assertEquals(8, mIndex.size());
+        assertEquals(360, mIndex.totalHeight());
+    }
+
+    @Test
+    public void moveDown() {
+        measureIncreasing();
+        mIndex.move(1, 4);
+        int[] expected = {10, 30, 40, 50, 20, 60, 70, 80, 90, 100};
+        assertHeights(expected);
+    }
+
+    @Test
+    public void moveUp() {
+        measureIncreasing();
+        mIndex.move(7, 2);
+        int[] expected = {10, 20, 80, 30, 40, 50, 60, 70, 90, 100};
+        assertHeights(expected);
+    }
+
+    @Test
+    public void positionAt() {
+        measureIncreasing();
+        assertEquals(0, mIndex.positionAt(0));
+        assertEquals(0, mIndex.positionAt(9));
+        assertEquals(1, mIndex.positionAt(10));
+        assertEquals(2, mIndex.positionAt(30));
+        assertEquals(2, mIndex.positionAt(59));
+        assertEquals(3, mIndex.positionAt(60));
+        assertEquals(9, mIndex.positionAt(549));
+        // 超出总高度时返回最后一个position
+        assertEquals(9, mIndex.positionAt(10000));
+    }
+
+    @Test
+    public void positionAtIsInverseOfOffsetOf() {
+        mIndex.reset(1000);
+        for (int i = 0; i < 1000; i += 3) {
+            mIndex.setHeight(i, 20 + i % 7 * 10);
+        }
+        for (int position = 0; position < 1000; position++) {
+            long offset = mIndex.offsetOf(position);
+            assertEquals(position, mIndex.positionAt(offset));
+            if (offset > 0) {
+                assertEquals(position - 1, mIndex.positionAt(offset - 1));
+            }
+        }
+    }
+
+    @Test
+    public void positionAtWithoutItems() {
+        mIndex.reset(0);
+        assertEquals(ScrollOffsetIndex.NO_POSITION, mIndex.positionAt(0));
+        assertEquals(0, mIndex.totalHeight());
+    }
+
+    private void measureAll(int height) {
+        for (int i = 0; i < mIndex.size(); i++) {
+            mIndex.setHeight(i, height);
+        }
+    }
+
+    /**
+     * position i的高度为(i + 1) * 10，总高度550
+     */
+    private void measureIncreasing() {
+        for (int i = 0; i < mIndex.size(); i++) {
+            mIndex.setHeight(i, (i + 1) * 10);
+        }
+    }
+
+    private void assertHeights(int[] expected) {
+        assertEquals(expected.length, mIndex.size());
+        long offset = 0;
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], mIndex.getHeight(i));
+            assertEquals(offset, mIndex.offsetOf(i));
+            offset += expected[i];
+        }
+        assertEquals(offset, mIndex.totalHeight());
+    }
+}
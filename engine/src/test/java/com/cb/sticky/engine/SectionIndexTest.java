@@ -0,0 +1,262 @@
+package com.cb.sticky.engine;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 校验section索引的一次建立、分批建立，以及局部刷新时边界position(前一个item发生了变化)的重新探测
+ */
+public class SectionIndexTest {
+    /**
+     * 按key分组的列表，key与前一个item不同的position为section起点
+     */
+    private final List<Integer> mKeys = new ArrayList<>();
+    private final SectionIndex.SectionProber mProber = new SectionIndex.SectionProber() {
+        @Override
+        public boolean isSectionStart(int position) {
+            mProbeCount++;
+            return position == 0 || !mKeys.get(position).equals(mKeys.get(position - 1));
+        }
+    };
+    private int mProbeCount;
+    private SectionIndex mIndex;
+
+    @Before
+    public void setUp() {
+        // 起点：0, 3, 5, 9
+        mKeys.addAll(Arrays.asList(0, 0, 0, 1, 1, 2, 2, 2, 2, 3, 3));
+        mIndex = new SectionIndex();
+    }
+
+    @Test
+    public void build() {
+        mIndex.build(mKeys.size(), mProber);
+        assertTrue(mIndex.isBuilt());
+        assertFalse(mIndex.isBuilding());
+        assertStarts(0, 3, 5, 9);
+        assertEquals(SectionIndex.NO_POSITION, mIndex.floor(-1));
+        assertEquals(0, mIndex.floor(2));
+        assertEquals(3, mIndex.floor(3));
+        assertEquals(9, mIndex.floor(10));
+        assertEquals(3, mIndex.next(0));
+        assertEquals(5, mIndex.next(3));
+        assertEquals(SectionIndex.NO_POSITION, mIndex.next(9));
+        assertEquals(2, mIndex.sectionOf(8));
+    }
+
+    @Test
+    public void buildFromStarts() {
+        mIndex.build(new int[]{0, 3, 5, 9, 100}, 4, mKeys.size());
+        assertTrue(mIndex.isBuilt());
+        assertTrue(mIndex.isProbed(mKeys.size() - 1));
+        assertStarts(0, 3, 5, 9);
+    }
+
+    @Test
+    public void buildEmpty() {
+        mIndex.begin(0);
+        assertTrue(mIndex.isBuilt());
+        assertFalse(mIndex.isBuilding());
+        assertEquals(0, mIndex.size());
+    }
+
+    @Test
+    public void probeInBatches() {
+        mIndex.begin(mKeys.size());
+        assertTrue(mIndex.isBuilding());
+        assertFalse(mIndex.isProbed(0));
+
+        assertFalse(mIndex.probe(4, mProber));
+        assertEquals(4, mIndex.getProbedCount());
+        assertTrue(mIndex.isProbed(3));
+        assertFalse(mIndex.isProbed(4));
+        assertStarts(0, 3);
+
+        assertFalse(mIndex.probe(4, mProber));
+        assertTrue(mIndex.probe(100, mProber));
+        assertTrue(mIndex.isBuilt());
+        assertFalse(mIndex.isBuilding());
+        assertEquals(mKeys.size(), mProbeCount);
+        assertStarts(0, 3, 5, 9);
+    }
+
+    @Test
+    public void insertRange() {
+        mIndex.build(mKeys.size(), mProber);
+        // 在section 1的中间插入一个新的分组
+        mKeys.addAll(4, Arrays.asList(7, 7));
+        mProbeCount = 0;
+        mIndex.insertRange(4, 2, mProber);
+        // 只探测插入的区间以及原来位于4的item
+        assertEquals(3, mProbeCount);
+        assertStarts(0, 3, 4, 6, 7, 11);
+        assertIndexMatchesKeys();
+    }
+
+    @Test
+    public void removeRange() {
+        mIndex.build(mKeys.size(), mProber);
+        // 删除整个section 1之后，section 0与2相邻
+        mKeys.subList(3, 5).clear();
+        mProbeCount = 0;
+        mIndex.removeRange(3, 2, mProber);
+        assertEquals(1, mProbeCount);
+        assertStarts(0, 3, 7);
+        assertIndexMatchesKeys();
+    }
+
+    @Test
+    public void removeRangeMergesSections() {
+        // section 2的key与section 0相同，删除section 1之后边界position不再是起点
+        Collections.fill(mKeys.subList(5, 9), 0);
+        mIndex.build(mKeys.size(), mProber);
+        mKeys.subList(3, 5).clear();
+        mIndex.removeRange(3, 2, mProber);
+        assertStarts(0, 7);
+        assertIndexMatchesKeys();
+    }
+
+    @Test
+    public void changeRange() {
+        mIndex.build(mKeys.size(), mProber);
+        // position 8改为下一个分组的key，position 9不再是起点
+        mKeys.set(8, 3);
+        mProbeCount = 0;
+        mIndex.changeRange(8, 1, mProber);
+        assertEquals(2, mProbeCount);
+        assertStarts(0, 3, 5, 8);
+        assertIndexMatchesKeys();
+    }
+
+    @Test
+    public void moveRange() {
+        mIndex.build(mKeys.size(), mProber);
+        Integer moved = mKeys.remove(0);
+        mKeys.add(6, moved);
+        mIndex.moveRange(0, 6, 1, mProber);
+        assertIndexMatchesKeys();
+
+        moved = mKeys.remove(10);
+        mKeys.add(1, moved);
+        mIndex.moveRange(10, 1, 1, mProber);
+        assertIndexMatchesKeys();
+    }
+
+    @Test
+    public void rangeChangeWhileBuildingTruncatesProbed() {
+        mIndex.begin(mKeys.size());
+        mIndex.probe(8, mProber);
+        assertStarts(0, 3, 5);
+
+        // 已探测区间之后的变化不影响已探测的部分
+        mKeys.add(10, 3);
+        mIndex.insertRange(10, 1, mProber);
+        assertEquals(8, mIndex.getProbedCount());
+
+        // 已探测区间之内的变化丢弃该位置之后已探测的部分
+        mKeys.set(4, 2);
+        mIndex.changeRange(4, 1, mProber);
+        assertEquals(4, mIndex.getProbedCount());
+        assertFalse(mIndex.isProbed(4));
+        assertStarts(0, 3);
+
+        mKeys.remove(0);
+        mIndex.removeRange(0, 1, mProber);
+        assertEquals(0, mIndex.getProbedCount());
+        assertEquals(0, mIndex.size());
+
+        mIndex.probe(100, mProber);
+        assertTrue(mIndex.isBuilt());
+        assertIndexMatchesKeys();
+    }
+
+    @Test
+    public void removeAllWhileBuildingFinishesBuild() {
+        mIndex.begin(mKeys.size());
+        mIndex.probe(4, mProber);
+        int count = mKeys.size();
+        mKeys.clear();
+        mIndex.removeRange(0, count, mProber);
+        assertTrue(mIndex.isBuilt());
+        assertEquals(0, mIndex.size());
+    }
+
+    @Test
+    public void randomRangeChanges() {
+        Random random = new Random(7);
+        mIndex.build(mKeys.size(), mProber);
+        for (int i = 0; i < 500; i++) {
+            int size = mKeys.size();
+            switch (random.nextInt(4)) {
+                case 0: {
+                    int start = random.nextInt(size + 1);
+                    int count = 1 + random.nextInt(3);
+                    for (int j = 0; j < count; j++) {
+                        mKeys.add(start, random.nextInt(4));
+                    }
+                    mIndex.insertRange(start, count, mProber);
+                    break;
+                }
+                case 1: {
+                    if (size == 0) continue;
+                    int start = random.nextInt(size);
+                    int count = Math.min(1 + random.nextInt(3), size - start);
+                    mKeys.subList(start, start + count).clear();
+                    mIndex.removeRange(start, count, mProber);
+                    break;
+                }
+                case 2: {
+                    if (size == 0) continue;
+                    int start = random.nextInt(size);
+                    mKeys.set(start, random.nextInt(4));
+                    mIndex.changeRange(start, 1, mProber);
+                    break;
+                }
+                default: {
+                    if (size < 2) continue;
+                    int from = random.nextInt(size);
+                    int to = random.nextInt(size);
+                    mKeys.add(to, mKeys.remove(from));
+                    mIndex.moveRange(from, to, 1, mProber);
+                    break;
+                }
+            }
+            assertIndexMatchesKeys();
+        }
+    }
+
+    private void assertStarts(int... starts) {
+        int[] actual = new int[mIndex.size()];
+        for (int i = 0; i < actual.length; i++) {
+            actual[i] = mIndex.get(i);
+        }
+        assertEquals(Arrays.toString(starts), Arrays.toString(actual));
+    }
+
+    /**
+     * 与重新全部探测的结果一致
+     */
+    private void assertIndexMatchesKeys() {
+        List<Integer> expected = new ArrayList<>();
+        for (int position = 0; position < mKeys.size(); position++) {
+            if (mProber.isSectionStart(position)) {
+                expected.add(position);
+            }
+        }
+        List<Integer> actual = new ArrayList<>();
+        for (int i = 0; i < mIndex.size(); i++) {
+            actual.add(mIndex.get(i));
+        }
+        assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,116 @@
+package com.cb.sticky.engine;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 校验sticky数据缓存在局部刷新时key的平移，以及边界position(前一个item发生了变化)的数据被删除
+ */
+public class StickyCacheTest {
+    private StickyCache<String> mCache;
+    private final List<String> mRemoved = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mCache = new StickyCache<>(4);
+        mCache.setOnRemovedListener(new StickyCache.OnRemovedListener<String>() {
+            @Override
+            public void onRemoved(int key, String value) {
+                mRemoved.add(value);
+            }
+        });
+        for (int position = 0; position < 10; position++) {
+            mCache.put(position, "p" + position);
+        }
+        mRemoved.clear();
+    }
+
+    @Test
+    public void putReplacesAndNotifies() {
+        mCache.put(3, "new");
+        assertEquals("new", mCache.get(3));
+        assertEquals("[p3]", mRemoved.toString());
+        assertEquals(10, mCache.size());
+    }
+
+    @Test
+    public void insertRange() {
+        mCache.insertRange(3, 2);
+        assertEquals("p2", mCache.get(2));
+        assertNull(mCache.get(3));
+        assertNull(mCache.get(4));
+        // 原来的position 3前一个item变了
+        assertNull(mCache.get(5));
+        assertEquals("p4", mCache.get(6));
+        assertEquals("p9", mCache.get(11));
+        assertEquals("[p3]", mRemoved.toString());
+    }
+
+    @Test
+    public void removeRange() {
+        mCache.removeRange(3, 2);
+        assertEquals("p2", mCache.get(2));
+        // 原来的position 5前一个item变了
+        assertNull(mCache.get(3));
+        assertEquals("p6", mCache.get(4));
+        assertEquals("p9", mCache.get(7));
+        assertNull(mCache.get(8));
+        assertEquals("[p3, p4, p5]", mRemoved.toString());
+    }
+
+    @Test
+    public void invalidateRangeKeepsNextItem() {
+        // 调用方负责把下一个item也包含在区间内
+        mCache.invalidateRange(3, 2);
+        assertNull(mCache.get(3));
+        assertNull(mCache.get(4));
+        assertEquals("p5", mCache.get(5));
+        assertEquals(8, mCache.size());
+    }
+
+    @Test
+    public void moveRangeDown() {
+        // [p0, p1, (p2), p3, p4, p5, ...] -> [p0, p1, p3, p4, p5, p2, p6, ...]
+        mCache.moveRange(2, 5, 1);
+        assertEquals("p1", mCache.get(1));
+        // 移出处的下一个item、被移动的item以及移入处的下一个item的数据被删除
+        assertNull(mCache.get(2));
+        assertEquals("p4", mCache.get(3));
+        assertEquals("p5", mCache.get(4));
+        assertNull(mCache.get(5));
+        assertNull(mCache.get(6));
+        assertEquals("p7", mCache.get(7));
+        assertEquals(7, mCache.size());
+    }
+
+    @Test
+    public void moveRangeUp() {
+        // [p0, p1, p2, p3, p4, p5, (p6), p7, ...] -> [p0, p6, p1, p2, p3, p4, p5, p7, ...]
+        mCache.moveRange(6, 1, 1);
+        assertEquals("p0", mCache.get(0));
+        assertNull(mCache.get(1));
+        assertNull(mCache.get(2));
+        assertEquals("p2", mCache.get(3));
+        assertEquals("p5", mCache.get(6));
+        assertNull(mCache.get(7));
+        assertEquals("p8", mCache.get(8));
+        assertEquals(7, mCache.size());
+    }
+
+    @Test
+    public void trimToWindow() {
+        mCache.setWindow(2);
+        assertEquals(4, mCache.trimToWindow(4, 5));
+        assertEquals(2, mCache.keyAt(0));
+        assertEquals(7, mCache.keyAt(mCache.size() - 1));
+        assertEquals(4, mCache.getEvictionCount());
+        assertEquals(4, mRemoved.size());
+        assertEquals(0, mCache.trimToWindow(4, 5));
+    }
+}
@@ -0,0 +1,193 @@
+package com.cb.sticky.library;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Rect;
+import android.os.Debug;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.cb.sticky.DividerDecoration;
+import com.cb.sticky.LinearStickyDecoration;
+import com.cb.sticky.MyRecyclerView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 模拟滑动，校验两个Decoration在稳定状态下每帧不再分配对象
+ */
+@RunWith(AndroidJUnit4.class)
+public class DecorationAllocationTest {
+    private static final int WIDTH = 720;
+    private static final int HEIGHT = 1280;
+    private static final int ITEM_COUNT = 500;
+    private static final int ITEM_HEIGHT = 100;
+    private static final int SECTION_SIZE = 7;
+    private static final int STICKY_HEIGHT = 60;
+    private static final int SCROLL_STEP = 37;
+    private static final int MAX_IDLE_ROUNDS = 50;
+
+    private RecyclerView mRecyclerView;
+    private DividerDecoration mDividerDecoration;
+    private LinearStickyDecoration mStickyDecoration;
+    private final Rect mOutRect = new Rect();
+    private final RecyclerView.State mState = new RecyclerView.State();
+    private Canvas mCanvas;
+    private int mAllocCount;
+    private boolean mSectionIndexBuilt;
+
+    @Test
+    public void steadyScrollDoesNotAllocate() {
+        final Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                setUp(instrumentation.getTargetContext());
+                // 预热：完整地往返滑动两次，让缓存、视图池都达到稳定状态
+                for (int i = 0; i < 2; i++) {
+                    scrollThrough(SCROLL_STEP, false);
+                    scrollThrough(-SCROLL_STEP, false);
+                }
+            }
+        });
+        // section索引在主线程空闲时分批建立，等待建立完成之后再统计
+        waitForSectionIndex(instrumentation);
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mAllocCount = 0;
+                scrollThrough(SCROLL_STEP, true);
+                scrollThrough(-SCROLL_STEP, true);
+            }
+        });
+        assertEquals(0, mAllocCount);
+    }
+
+    /**
+     * 排空主线程的消息队列，直到空闲时分批建立的section索引完成
+     */
+    private void waitForSectionIndex(Instrumentation instrumentation) {
+        for (int i = 0; i < MAX_IDLE_ROUNDS && !mSectionIndexBuilt; i++) {
+            instrumentation.waitForIdleSync();
+            instrumentation.runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    mSectionIndexBuilt = mStickyDecoration.isSectionIndexBuilt(mRecyclerView);
+                }
+            });
+        }
+        assertTrue("section index is not built", mSectionIndexBuilt);
+    }
+
+    private void setUp(Context context) {
+        mCanvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+        mRecyclerView = new MyRecyclerView(context);
+        mRecyclerView.setLayoutManager(new LinearLayoutManager(context));
+        final ItemAdapter adapter = new ItemAdapter();
+        final StickyData[] stickyData = new StickyData[ITEM_COUNT];
+        for (int position = 0; position < ITEM_COUNT; position += SECTION_SIZE) {
+            stickyData[position] = new StickyData(position % 2 == 0 ? Color.RED : Color.BLUE);
+        }
+        mDividerDecoration = new DividerDecoration(context);
+        mStickyDecoration = new LinearStickyDecoration(adapter,
+                new LinearStickyDecoration.SimpleStickyItem<View, StickyData>() {
+                    @Override
+                    public View createStickyView() {
+                        View view = new View(mRecyclerView.getContext());
+                        view.setLayoutParams(new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                                STICKY_HEIGHT));
+                        view.setBackgroundColor(Color.BLACK);
+                        return view;
+                    }
+
+                    @Override
+                    public void bindView(View view, StickyData data) {
+                        view.setBackgroundColor(data.color);
+                    }
+
+                    @Override
+                    public StickyData obtainInsideDataByPosition(int position) {
+                        return stickyData[position];
+                    }
+                });
+        mRecyclerView.addItemDecoration(mDividerDecoration);
+        mRecyclerView.addItemDecoration(mStickyDecoration);
+        mRecyclerView.setAdapter(adapter);
+        mRecyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        mRecyclerView.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    /**
+     * 按照固定步长滑动到列表的一端，每一步模拟一帧
+     */
+    @SuppressWarnings("deprecation")
+    private void scrollThrough(int step, boolean countAllocations) {
+        int direction = step > 0 ? 1 : -1;
+        while (mRecyclerView.canScrollVertically(direction)) {
+            mRecyclerView.scrollBy(0, step);
+            if (countAllocations) {
+                Debug.resetThreadAllocCount();
+                Debug.startAllocCounting();
+            }
+            drawFrame();
+            if (countAllocations) {
+                Debug.stopAllocCounting();
+                mAllocCount += Debug.getThreadAllocCount();
+            }
+        }
+    }
+
+    /**
+     * 一帧中decoration所做的工作：计算offset、绘制divider、绘制sticky view
+     */
+    private void drawFrame() {
+        for (int i = 0, count = mRecyclerView.getChildCount(); i < count; i++) {
+            View child = mRecyclerView.getChildAt(i);
+            mDividerDecoration.getItemOffsets(mOutRect, child, mRecyclerView, mState);
+            mStickyDecoration.getItemOffsets(mOutRect, child, mRecyclerView, mState);
+        }
+        mDividerDecoration.onDraw(mCanvas, mRecyclerView, mState);
+        mStickyDecoration.onDrawOver(mCanvas, mRecyclerView, mState);
+    }
+
+    static class StickyData extends LinearStickyDecoration.BaseStickyData {
+        final int color;
+
+        StickyData(int color) {
+            this.color = color;
+        }
+    }
+
+    static class ItemAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            TextView textView = new TextView(parent.getContext());
+            textView.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ITEM_HEIGHT));
+            return new RecyclerView.ViewHolder(textView) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return ITEM_COUNT;
+        }
+    }
+}
@@ -5,6 +5,8 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Rect;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
 import android.view.Gravity;
 import android.view.View;
 import android.view.ViewGroup;
@@ -15,10 +17,13 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.cb.sticky.library.R;
 
-import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * 绘制divider
+ * <p>
+ * 所有可见子view的divider按照颜色收集到float数组中，每种颜色只调用一次{@link Canvas#drawLines(float[], int, int, Paint)}
  * Created by cb on 2019/12/16.
  */
 public class DividerDecoration extends RecyclerView.ItemDecoration {
@@ -27,17 +32,44 @@ public class DividerDecoration extends RecyclerView.ItemDecoration {
      * 定义divider的高度
      */
     private int mDividerHeight = 3;
+    /**
+     * divider的默认颜色
+     */
+    private int mDividerColor = Color.parseColor("#333333");
+    /**
+     * 按照viewType单独设置的divider颜色
+     */
+    private final SparseIntArray mDividerColors = new SparseIntArray();
+    /**
+     * 不绘制divider的viewType
+     */
+    private final SparseBooleanArray mNoDividerViewTypes = new SparseBooleanArray();
+    /**
+     * divider左右两侧的缩进
+     */
+    private int mDividerInsetLeft;
+    private int mDividerInsetRight;
+    /**
+     * 按照颜色分组的divider线段，每帧复用
+     */
+    private final ArrayList<DividerBatch> mBatches = new ArrayList<>(2);
     /**
      * 底部视图的高度
      */
     private int mLoadEndHeight;
-    private boolean mHasResetDecorInsets = true;
+    /**
+     * 最近一次布局时，是否在最后一个item之后预留了底部视图的高度(即：列表填满了RecyclerView)
+     */
+    private boolean mLoadEndVisible;
     private TextView mLoadEndView;
     private boolean mHasMeasure = false;
 
     public DividerDecoration(@NonNull Context context) {
-        mPaint.setAntiAlias(true);
-        mPaint.setColor(Color.parseColor("#333333"));
+        // divider是对齐像素的水平线段，不需要抗锯齿
+        mPaint.setAntiAlias(false);
+        mPaint.setStyle(Paint.Style.STROKE);
+        mPaint.setStrokeCap(Paint.Cap.BUTT);
+        mPaint.setStrokeWidth(mDividerHeight);
         mLoadEndHeight = context.getResources().getDimensionPixelOffset(R.dimen.load_end_layout_height);
         mLoadEndView = new TextView(context);
         mLoadEndView.setText("已经到底啦");
@@ -58,81 +90,200 @@ public class DividerDecoration extends RecyclerView.ItemDecoration {
                     View.MeasureSpec.makeMeasureSpec(mLoadEndHeight, View.MeasureSpec.EXACTLY));
             mLoadEndView.layout(0, 0, parent.getWidth(), mLoadEndHeight);
         }
-        for (int index = 0; index < parent.getChildCount(); index++) {
+        int lastPosition = parent.getAdapter().getItemCount() - 1;
+        for (int i = 0, size = mBatches.size(); i < size; i++) {
+            mBatches.get(i).count = 0;
+        }
+        View lastChild = null;
+        int lastChildDividerHeight = 0;
+        for (int index = 0, childCount = parent.getChildCount(); index < childCount; index++) {
             View child = parent.getChildAt(index);
-            int position = parent.getChildLayoutPosition(child);
-            // 绘制分割线
-            c.drawRect(new Rect(child.getLeft(),
-                    child.getBottom(), child.getRight(),
-                    child.getBottom() + mDividerHeight), mPaint);
-            // 绘制底部视图
-            if (isFilledAndLastChild(parent, position)) {
-                int count = c.save();
-                c.translate(0, child.getBottom() + mDividerHeight);
-                mLoadEndView.draw(c);
-                c.restoreToCount(count);
-            } else if (position == (parent.getAdapter().getItemCount() - 1) && !mHasResetDecorInsets) {
-                // 在不满一屏的时候需要减去在getItemOffsets方法中设置的DecorInsetsBottom(mLoadEndHeight)
-                // 修正在不满一屏的情况下可以上下滑动的可能
-                mHasResetDecorInsets = true;
-                RecyclerView.LayoutParams params = (RecyclerView.LayoutParams) child.getLayoutParams();
-                setDecorInsetsBottom(params, mDividerHeight);
+            int viewType = getChildViewType(parent, child);
+            int dividerHeight = getDividerHeight(viewType);
+            if (dividerHeight > 0) {
+                // 收集分割线，线宽为divider高度，所以线段位于divider的垂直中心
+                float y = child.getBottom() + dividerHeight / 2f;
+                obtainBatch(mDividerColors.get(viewType, mDividerColor)).add(
+                        child.getLeft() + mDividerInsetLeft, y, child.getRight() - mDividerInsetRight, y);
+            }
+            if (parent.getChildLayoutPosition(child) == lastPosition) {
+                lastChild = child;
+                lastChildDividerHeight = dividerHeight;
+            }
+        }
+        // 绘制分割线，每种颜色只绘制一次
+        for (int i = 0, size = mBatches.size(); i < size; i++) {
+            DividerBatch batch = mBatches.get(i);
+            if (batch.count > 0) {
+                mPaint.setColor(batch.color);
+                c.drawLines(batch.points, 0, batch.count, mPaint);
             }
         }
+        // 绘制底部视图，是否绘制已经在布局时(getItemOffsets)确定
+        if (lastChild != null && mLoadEndVisible) {
+            int count = c.save();
+            c.translate(0, lastChild.getBottom() + lastChildDividerHeight);
+            mLoadEndView.draw(c);
+            c.restoreToCount(count);
+        }
     }
 
     @Override
     public void getItemOffsets(@NonNull Rect outRect, @NonNull View view,
                                @NonNull RecyclerView parent,
                                @NonNull RecyclerView.State state) {
-        int totalHeight = mDividerHeight;
+        int totalHeight = getDividerHeight(getChildViewType(parent, view));
         int position = parent.getChildLayoutPosition(view);
-        // 由于getItemOffsets方法在view measure之前，所以无法根据子view高度准确计算是否是满屏
-        // 所以不管什么情况，只要是最后一个item，则在该item之后增加一个到底提示高度
-        // 如果实际不满一屏，此时不能让RecyclerView上下可滑动，需要在onDraw方法中进行修正
-        if (position == (parent.getAdapter().getItemCount() - 1)) {
-            totalHeight += mLoadEndHeight;
-            mHasResetDecorInsets = false;
+        // 只有在列表填满RecyclerView时，才在最后一个item之后增加一个到底提示高度
+        // 不满一屏时不能增加该高度，否则RecyclerView可以上下滑动
+        if (position == state.getItemCount() - 1) {
+            mLoadEndVisible = isFilledWithLastChild(parent, view, state);
+            if (mLoadEndVisible) {
+                totalHeight += mLoadEndHeight;
+            }
         }
         outRect.bottom = totalHeight;
     }
 
     /**
-     * 反射重置DecorInsetsBottom，在子视图无法填充满RecyclerView时，也能正常展示底部视图
-     *
-     * @param param  子view的LayoutParams
-     * @param bottom 重置的DecorInsetsBottom的值
-     */
-    private void setDecorInsetsBottom(RecyclerView.LayoutParams param, int bottom) {
-        try {
-            // 找到RecyclerView.LayoutParams中的mDecorInsets属性值
-            Field filed = RecyclerView.LayoutParams.class.getDeclaredField("mDecorInsets");
-            filed.setAccessible(true);
-            Rect decorRect = (Rect) filed.get(param);
-            decorRect.bottom = bottom;
-        } catch (Exception e) {
+     * 设置divider的高度
+     */
+    public void setDividerHeight(int dividerHeight) {
+        mDividerHeight = Math.max(dividerHeight, 0);
+        mPaint.setStrokeWidth(mDividerHeight);
+    }
+
+    /**
+     * 设置divider的默认颜色
+     */
+    public void setDividerColor(int color) {
+        mDividerColor = color;
+    }
+
+    /**
+     * 为某种viewType单独设置divider颜色
+     */
+    public void setDividerColor(int viewType, int color) {
+        mDividerColors.put(viewType, color);
+    }
+
+    /**
+     * 设置divider左右两侧的缩进
+     */
+    public void setDividerInsets(int left, int right) {
+        mDividerInsetLeft = left;
+        mDividerInsetRight = right;
+    }
+
+    /**
+     * 设置某种viewType的item之后是否绘制divider，不绘制时也不会预留divider的高度
+     */
+    public void setDividerEnabled(int viewType, boolean enabled) {
+        if (enabled) {
+            mNoDividerViewTypes.delete(viewType);
+        } else {
+            mNoDividerViewTypes.put(viewType, true);
+        }
+    }
+
+    private int getDividerHeight(int viewType) {
+        return mNoDividerViewTypes.get(viewType) ? 0 : mDividerHeight;
+    }
+
+    private static int getChildViewType(RecyclerView parent, View child) {
+        RecyclerView.ViewHolder holder = parent.getChildViewHolder(child);
+        return holder != null ? holder.getItemViewType() : RecyclerView.INVALID_TYPE;
+    }
+
+    private DividerBatch obtainBatch(int color) {
+        for (int i = 0, size = mBatches.size(); i < size; i++) {
+            DividerBatch batch = mBatches.get(i);
+            if (batch.color == color) {
+                return batch;
+            }
+        }
+        DividerBatch batch = new DividerBatch(color);
+        mBatches.add(batch);
+        return batch;
+    }
+
+    /**
+     * 同一种颜色的divider线段，每条线段占用4个float(x0, y0, x1, y1)
+     */
+    private static class DividerBatch {
+        final int color;
+        float[] points = new float[64];
+        int count;
+
+        DividerBatch(int color) {
+            this.color = color;
+        }
+
+        void add(float x0, float y0, float x1, float y1) {
+            if (count + 4 > points.length) {
+                points = Arrays.copyOf(points, points.length * 2);
+            }
+            points[count++] = x0;
+            points[count++] = y0;
+            points[count++] = x1;
+            points[count++] = y1;
         }
     }
 
     /**
-     * 判断RecyclerView是否被填满&是否是最后一个子view
+     * 在布局最后一个item时，判断列表是否填满了RecyclerView，在本次布局中确定，不需要绘制之后修正以及额外的布局
+     * <p>
+     * getItemOffsets在最后一个子view measure之前调用，此时本次布局中其他的子view都有了确定的高度(包含装饰)；
+     * 最后一个子view已有有效的测量结果时直接使用，否则按照LayoutManager的规则提前measure一次
      *
-     * @param parent        RecyclerView
-     * @param childPosition 子view的位置
+     * @param parent   RecyclerView
+     * @param lastView 最后一个子view
      * @return false/true
      */
-    private boolean isFilledAndLastChild(RecyclerView parent, int childPosition) {
-        int childCount = parent.getChildCount();
-        if (childCount <= 0 || childPosition != (parent.getAdapter().getItemCount() - 1)) {
-            return false;
+    private boolean isFilledWithLastChild(RecyclerView parent, View lastView, RecyclerView.State state) {
+        RecyclerView.LayoutManager layoutManager = parent.getLayoutManager();
+        if (layoutManager == null || state.isPreLayout()) {
+            return mLoadEndVisible;
         }
-        View firstChild = parent.getChildAt(0);
-        View lastChild = parent.getChildAt(childCount - 1);
-        int firstPosition = parent.getChildLayoutPosition(firstChild);
-        // 首个child pos大于0则认为是被填满的,否则判断高度
-        if (firstPosition > 0 || (lastChild.getBottom() - firstChild.getTop()) >= parent.getHeight()) {
-            return true;
+        int available = layoutManager.getHeight() - layoutManager.getPaddingTop() - layoutManager.getPaddingBottom();
+        if (available <= 0) {
+            return mLoadEndVisible;
+        }
+        int used = getChildHeight(layoutManager, lastView) + getDividerHeight(getChildViewType(parent, lastView));
+        boolean hasFirstChild = state.getItemCount() == 1;
+        for (int index = 0, count = layoutManager.getChildCount(); index < count && used < available; index++) {
+            View child = layoutManager.getChildAt(index);
+            if (child == lastView) continue;
+            if (layoutManager.getPosition(child) == 0) {
+                hasFirstChild = true;
+            }
+            used += layoutManager.getDecoratedMeasuredHeight(child);
+        }
+        // 已经填满，或者首个item没有在本次布局中(说明列表已经滑动过)，都认为是被填满的
+        return used >= available || !hasFirstChild;
+    }
+
+    /**
+     * 子view包含margin的高度；没有有效的测量结果时，按照LayoutManager的规则提前measure
+     */
+    private int getChildHeight(RecyclerView.LayoutManager layoutManager, View child) {
+        RecyclerView.LayoutParams params = (RecyclerView.LayoutParams) child.getLayoutParams();
+        if (!child.isLayoutRequested() && child.getMeasuredHeight() > 0
+                && child.getMeasuredWidth() == layoutManager.getWidth() - layoutManager.getPaddingLeft()
+                - layoutManager.getPaddingRight() - params.leftMargin - params.rightMargin) {
+            return child.getMeasuredHeight() + params.topMargin + params.bottomMargin;
         }
-        return false;
+        int widthSpec = RecyclerView.LayoutManager.getChildMeasureSpec(layoutManager.getWidth(),
+                layoutManager.getWidthMode(),
+                layoutManager.getPaddingLeft() + layoutManager.getPaddingRight()
+                        + params.leftMargin + params.rightMargin,
+                params.width, layoutManager.canScrollHorizontally());
+        int heightSpec = RecyclerView.LayoutManager.getChildMeasureSpec(layoutManager.getHeight(),
+                layoutManager.getHeightMode(),
+                layoutManager.getPaddingTop() + layoutManager.getPaddingBottom()
+                        + params.topMargin + params.bottomMargin,
+                params.height, layoutManager.canScrollVertically());
+        child.measure(widthSpec, heightSpec);
+        return child.getMeasuredHeight() + params.topMargin + params.bottomMargin;
     }
 }
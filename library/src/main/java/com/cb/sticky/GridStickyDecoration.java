@@ -0,0 +1,146 @@
+package com.cb.sticky;
+
+import android.graphics.Rect;
+import android.util.SparseIntArray;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.recyclerview.widget.StaggeredGridLayoutManager;
+
+/**
+ * 支持GridLayoutManager和StaggeredGridLayoutManager(纵向)的顶部悬停效果
+ * <p>
+ * ①sticky view绘制在section起点所在的那一行之上，宽度为整个RecyclerView
+ * ②section起点所在行的所有item都需要预留sticky view的高度，之后的行不需要
+ * ③每个section首行的最后一个position按照section缓存，不会在每帧、每个item上重复计算
+ * <p>
+ * 注意：section的起点需要位于新的一行(如：上一个section的最后一个item占满剩余的span，或者起点本身占满一行)
+ */
+public class GridStickyDecoration extends LinearStickyDecoration {
+    /**
+     * section起点 -> 该section首行的最后一个position
+     */
+    private final SparseIntArray mFirstRowEnds = new SparseIntArray();
+    /**
+     * 计算{@link #mFirstRowEnds}时的spanCount，spanCount变化时需要重新计算
+     */
+    private int mSpanCount;
+
+    public GridStickyDecoration(RecyclerView.Adapter adapter, IStickyItem stickyItem) {
+        super(adapter, stickyItem);
+        if (adapter == null) {
+            return;
+        }
+        // 任何数据变化都可能影响各section首行的范围，这里的计算很轻量，直接全部清理
+        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                mFirstRowEnds.clear();
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount) {
+                mFirstRowEnds.clear();
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount, @Nullable Object payload) {
+                mFirstRowEnds.clear();
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                mFirstRowEnds.clear();
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                mFirstRowEnds.clear();
+            }
+
+            @Override
+            public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+                mFirstRowEnds.clear();
+            }
+        });
+    }
+
+    @Override
+    public void getItemOffsets(Rect outRect, View view, RecyclerView parent, RecyclerView.State state) {
+        super.getItemOffsets(outRect, view, parent, state);
+        if (outRect.top > 0) {
+            // section起点，已经预留了sticky view的高度
+            return;
+        }
+        int position = parent.getChildLayoutPosition(view);
+        int sectionStart = getSectionStart(parent, position);
+        if (sectionStart == RecyclerView.NO_POSITION || sectionStart == position) {
+            return;
+        }
+        // 与section起点在同一行的item也需要预留相同的高度，以保证该行对齐
+        if (position <= getFirstRowEnd(parent, sectionStart, state.getItemCount())) {
+            outRect.top = getInsideStickyHeight(parent, sectionStart);
+        }
+    }
+
+    /**
+     * 获取section首行的最后一个position
+     */
+    private int getFirstRowEnd(RecyclerView parent, int sectionStart, int itemCount) {
+        RecyclerView.LayoutManager layoutManager = parent.getLayoutManager();
+        int spanCount = getSpanCount(layoutManager);
+        if (spanCount != mSpanCount) {
+            mSpanCount = spanCount;
+            mFirstRowEnds.clear();
+        }
+        int firstRowEnd = mFirstRowEnds.get(sectionStart, RecyclerView.NO_POSITION);
+        if (firstRowEnd != RecyclerView.NO_POSITION) {
+            return firstRowEnd;
+        }
+        int nextSectionStart = getNextSectionStart(parent, sectionStart, itemCount);
+        if (layoutManager instanceof GridLayoutManager) {
+            GridLayoutManager.SpanSizeLookup lookup = ((GridLayoutManager) layoutManager).getSpanSizeLookup();
+            int usedSpan = 0;
+            firstRowEnd = sectionStart;
+            for (int position = sectionStart; position < nextSectionStart; position++) {
+                usedSpan += lookup.getSpanSize(position);
+                if (usedSpan > spanCount) break;
+                firstRowEnd = position;
+            }
+        } else if (layoutManager instanceof StaggeredGridLayoutManager) {
+            // 瀑布流中，section起点占满一行时首行只有它自己，否则为接下来的spanCount个item
+            View startView = layoutManager.findViewByPosition(sectionStart);
+            boolean fullSpan = startView != null
+                    && ((StaggeredGridLayoutManager.LayoutParams) startView.getLayoutParams()).isFullSpan();
+            firstRowEnd = fullSpan ? sectionStart : Math.min(sectionStart + spanCount, nextSectionStart) - 1;
+            if (startView == null) {
+                // section起点还没有布局，暂不缓存
+                return firstRowEnd;
+            }
+        } else {
+            firstRowEnd = sectionStart;
+        }
+        mFirstRowEnds.put(sectionStart, firstRowEnd);
+        return firstRowEnd;
+    }
+
+    /**
+     * 下一个section的起点，没有则返回itemCount
+     */
+    private int getNextSectionStart(RecyclerView parent, int sectionStart, int itemCount) {
+        int nextStart = getNextSection(parent, sectionStart);
+        return nextStart == RecyclerView.NO_POSITION ? itemCount : Math.min(nextStart, itemCount);
+    }
+
+    private static int getSpanCount(RecyclerView.LayoutManager layoutManager) {
+        if (layoutManager instanceof GridLayoutManager) {
+            return ((GridLayoutManager) layoutManager).getSpanCount();
+        }
+        if (layoutManager instanceof StaggeredGridLayoutManager) {
+            return ((StaggeredGridLayoutManager) layoutManager).getSpanCount();
+        }
+        return 1;
+    }
+}
@@ -1,15 +1,27 @@
 package com.cb.sticky;
 
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Trace;
 import android.view.View;
-import android.view.ViewGroup;
 
 import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
+import androidx.recyclerview.widget.StaggeredGridLayoutManager;
 
-import java.util.HashMap;
-import java.util.Map;
+import com.cb.sticky.engine.ScrollOffsetIndex;
+import com.cb.sticky.engine.SectionIndex;
+import com.cb.sticky.engine.StickyCache;
+import com.cb.sticky.engine.StickyFrameSnapshot;
+import com.cb.sticky.engine.StickyLayoutEngine;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 实现了针对RecyclerView的在顶部悬停的效果
@@ -17,216 +29,1439 @@ import java.util.Map;
  * ①所有的sticky view均由Decoration代为处理，在adapter中可以不单独处理
  * ②设计思想：将sticky view也看成divider的一种，由Decoration托管其实现
  * ③解决在RecyclerView刷新时，悬停视图错乱的问题
- * ④可以支持顶部悬停和不悬停两种状态({@link IStickyItem#obtainHoverData(int)}方法返回null，则不会在当前的item上有悬停视图)
+ * ④可以支持顶部悬停和不悬停两种状态(首个section之前的item不会有悬停视图；
+ * 没有使用section索引时，{@link IStickyItem#obtainHoverData(int)}方法返回null，则不会在当前的item上有悬停视图)
+ * ⑤内部维护有序的section起点索引，在主线程空闲时分批建立，查找悬停视图为二分查找；
+ * 继承{@link SimpleStickyItem}时默认通过索引查找悬停视图，业务可以不实现{@link IStickyItem#obtainHoverData(int)}
+ * ⑥可选的位图快照模式({@link #setStickySnapshotCacheSize(int)})，内嵌的sticky view只绑定、绘制一次
+ * ⑦支持多种sticky view类型({@link IMultiTypeStickyItem})，sticky view由缓存池管理，已绑定过的数据不会重复bind&measure
+ * ⑧在主线程空闲时，沿滑动方向预取接下来的sticky数据并measure({@link #setPrefetchCount(int)})
+ * ⑨sticky数据提供内容key({@link BaseStickyData#getContentKey()})时，measure的高度按照内容缓存，全量刷新之后也不需要重新measure
+ * ⑩可选的每帧耗时统计({@link #setOnFrameMetricsListener(OnFrameMetricsListener)})，并输出android.os.Trace区间，便于在systrace/Perfetto中分析
+ * ⑪sticky数据需要异步、分页加载时，可以继承{@link PagedStickyItem}，帧内不会等待数据
+ * ⑫差量提交列表时，可以通过{@link #beginDiff()}在后台线程重建section索引，提交时一次性替换
+ * ⑬按照section跳转({@link #scrollToSection(RecyclerView, int)})，配合{@link StickyFastScroller}快速定位
+ * ⑭业务可以在后台线程构建不可变的{@link SectionSnapshot}并发布({@link #setSectionSnapshot(SectionSnapshot)})，主线程不再读取业务的可变列表
+ * ⑮悬停视图只在section切换时重新绘制一次，API 29及以上录制为RenderNode，之后每帧只更新偏移({@link #setHoverRenderCacheEnabled(boolean)})
+ * ⑯记录视图当前绑定的数据以及悬停视图的section状态({@link #getHoverState()})，section没有变化时不会重新bind & measure
+ * ⑰纯文本的sticky view可以使用{@link TextStickyItem}，预取时在后台线程排版文本，获取高度时不需要在主线程measure
+ * ⑱可选的滑动偏移索引({@link #setScrollOffsetIndexEnabled(boolean)})，按position记录包含装饰的item高度，
+ * 为{@link MyRecyclerView}提供精确的滚动条，并支持按照像素偏移恢复滑动位置({@link #scrollToOffset(RecyclerView, int)})
+ * ⑲可选的覆盖层悬停模式({@link StickyHeaderLayout})，悬停视图是真实的子view，只在section切换时绑定，上推时只修改translationY，
+ * 可以直接响应点击以及无障碍服务，不需要每帧绘制以及拦截点击事件
  * <p>
  * Created by cb on 2019/12/16.
  */
 public class LinearStickyDecoration extends RecyclerView.ItemDecoration {
     /**
-     * 悬停view
+     * 只有一种sticky view时的viewType
+     */
+    public static final int DEFAULT_STICKY_VIEW_TYPE = 0;
+    /**
+     * 悬停视图的状态：没有悬停视图
+     */
+    public static final int HOVER_STATE_NONE = 0;
+    /**
+     * 悬停视图固定在顶部
+     */
+    public static final int HOVER_STATE_PINNED = 1;
+    /**
+     * 悬停视图正在被下一个sticky view向上推动
+     */
+    public static final int HOVER_STATE_PUSHING = 2;
+    private static final int MAX_RECYCLED_CACHE_DATA = 8;
+    /**
+     * 最近一次绑定数据的sticky view
+     */
+    private View mStickyView;
+    /**
+     * {@link #mStickyView}当前绑定的数据以及其在缓存池中的holder，再次绑定同一个数据时不需要查找缓存池
+     */
+    private StickItemCacheData mBoundData;
+    private StickyViewPool.Holder mBoundHolder;
+    /**
+     * 悬停视图的状态以及所属section的数据
+     */
+    private int mHoverState = HOVER_STATE_NONE;
+    private BaseStickyData mHoverData;
+    /**
+     * sticky view缓存池，按照viewType缓存已经绑定过数据的视图
+     */
+    private StickyViewPool mViewPool;
+    /**
+     * 悬停视图距离顶部的距离
+     */
+    private int mStickyViewMarginTop;
+    /**
+     * 悬停视图的高度
+     */
+    private int mStickyViewHeight;
+    /**
+     * sticky数据源，以position为key，只保留可见区域附近的数据
+     */
+    private StickyCache<StickItemCacheData> mStickyData = new StickyCache<>(64);
+    /**
+     * sticky item 业务需要实现的接口
+     */
+    private IStickyItem mStickyItem;
+    /**
+     * 监听数据刷新的adapter，探测section起点时用于判断position是否越界
+     */
+    private RecyclerView.Adapter mAdapter;
+    /**
+     * 分页加载的sticky item，不是则为null
+     */
+    private PagedStickyItem mPagedItem;
+    /**
+     * 在后台线程排版文本的sticky item，不是则为null
+     */
+    private TextStickyItem mTextItem;
+    /**
+     * position -> 包含装饰的item高度的前缀和索引，未开启时为null
+     */
+    private ScrollOffsetIndex mOffsetIndex;
+    /**
+     * 展示悬停视图的覆盖层，不为null时不再在RecyclerView上绘制悬停视图
+     */
+    private StickyHeaderLayout mHoverOverlay;
+    /**
+     * 最近一次绘制的RecyclerView，分页数据加载完成之后用于刷新
+     */
+    private RecyclerView mParent;
+    /**
+     * 正在提交的差量列表，不为null时忽略adapter的局部刷新事件，提交完成之前继续使用旧的索引以及缓存
+     */
+    private StickyDiffSession mArmedDiffSession;
+    /**
+     * 每次arm递增，被更新的一次提交取代的session在commit时会被忽略
+     */
+    private int mDiffGeneration;
+    /**
+     * arm时adapter的item数量
+     */
+    private int mArmedItemCount;
+    /**
+     * arm之后是否有刷新事件被忽略
+     */
+    private boolean mArmedEventsSuppressed;
+    /**
+     * 业务最新发布的section快照，可以在任意线程写入；主线程读取时只是一次volatile读，不加锁
+     */
+    private final AtomicReference<SectionSnapshot> mSectionSnapshot = new AtomicReference<>();
+    /**
+     * 当前索引以及缓存所使用的section快照，只在主线程访问
+     */
+    private SectionSnapshot mAppliedSnapshot;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mApplySnapshotRunnable = new Runnable() {
+        @Override
+        public void run() {
+            RecyclerView parent = mParent;
+            if (parent != null && mSectionSnapshot.get() != mAppliedSnapshot) {
+                // 在下一次布局时切换到新的快照
+                parent.invalidateItemDecorations();
+            }
+        }
+    };
+    /**
+     * 保存上一次绘制的悬停视图的数据结构，无论top>0还是top<0，都需要绘制
+     */
+    private StickItemCacheData mPreStickyCacheData = null;
+    /**
+     * {@link #mPreStickyCacheData}所对应的position
+     */
+    private int mPreStickyPosition = RecyclerView.NO_POSITION;
+    /**
+     * 上一次缓存hover数据的position
+     */
+    private int mPreObtainHoverPosition = Integer.MAX_VALUE;
+    /**
+     * 上一次缓存hover数据的data，区别于{@link #mPreStickyCacheData}，只有在top>0的时候才会获取该数据
+     */
+    private StickItemCacheData mPreObtainHoverData = null;
+    /**
+     * section起点索引，用于查找某个position所属的悬停视图
+     */
+    private SectionIndex mSectionIndex = new SectionIndex();
+    /**
+     * 是否使用section索引查找悬停视图，为false时通过{@link IStickyItem#obtainHoverData(int)}获取；
+     * 只有继承了{@link SimpleStickyItem}时默认为true
+     */
+    private boolean mUseSectionIndex;
+    /**
+     * 内嵌sticky view的位图快照缓存，为null时不开启快照模式
+     */
+    private StickySnapshotCache mSnapshotCache;
+    /**
+     * 悬停视图的绘制缓存，为null时每帧直接绘制视图
+     */
+    private StickyHoverRenderer mHoverRenderer = new StickyHoverRenderer();
+    /**
+     * 每帧复用的可见sticky view布局快照
+     */
+    private final StickyFrameSnapshot mFrameSnapshot = new StickyFrameSnapshot();
+    /**
+     * 把RecyclerView的子view作为{@link StickyLayoutEngine}的输入
+     */
+    private final ChildRows mChildRows = new ChildRows();
+    /**
+     * 按照内容key缓存的sticky view高度，不随数据刷新清理
+     */
+    private final StickyHeightMemo mHeightMemo = new StickyHeightMemo();
+    /**
+     * 沿滑动方向预取sticky数据
+     */
+    private final StickyPrefetcher mPrefetcher = new StickyPrefetcher(new StickyPrefetcher.Target() {
+        @Override
+        public void prefetch(RecyclerView parent, int position) {
+            if (mTextItem != null) {
+                precomputeTextLayout(position, parent.getWidth());
+            } else if (mStickyItem != null) {
+                mPrefetching = true;
+                try {
+                    obtainInsideCacheData(position, parent.getWidth());
+                } finally {
+                    mPrefetching = false;
+                }
+            }
+        }
+    });
+    /**
+     * 正在预取，此时只measure高度，使用缓存池中独立的视图，不占用可见的sticky view以及悬停视图
+     */
+    private boolean mPrefetching;
+    /**
+     * 被移出缓存的数据结构，复用以避免滑动时频繁创建对象
+     */
+    private final ArrayList<StickItemCacheData> mRecycledCacheData = new ArrayList<>(MAX_RECYCLED_CACHE_DATA);
+    /**
+     * 通过{@link IStickyItem#obtainHoverData(int)}获取的悬停数据所复用的数据结构
+     */
+    private StickItemCacheData mHoverCacheData;
+    /**
+     * 本帧的耗时统计，每帧的onDrawOver结束时回调并重置
+     */
+    private final StickyFrameMetrics mFrameMetrics = new StickyFrameMetrics();
+    private OnFrameMetricsListener mFrameMetricsListener;
+    /**
+     * 在主线程空闲时分批建立section索引
+     */
+    private final SectionIndexBuilder mIndexBuilder = new SectionIndexBuilder(new SectionIndexBuilder.Target() {
+        @Override
+        public boolean probeSectionIndex(int count) {
+            // 索引已经建立完成、被替换或者失效，失效的索引在下一次绘制时重新安排
+            if (mStickyItem == null || !mSectionIndex.isBuilding()) {
+                return true;
+            }
+            // 空闲时的探测不计入帧内的统计
+            int obtainInsideDataCount = mFrameMetrics.obtainInsideDataCount;
+            boolean finished = mSectionIndex.probe(count, mSectionProber);
+            mFrameMetrics.obtainInsideDataCount = obtainInsideDataCount;
+            return finished;
+        }
+    });
+    private final SectionIndex.SectionProber mSectionProber = new SectionIndex.SectionProber() {
+        @Override
+        public boolean isSectionStart(int position) {
+            // 重新探测的边界position可能已经超出了列表的范围
+            if (mAdapter == null || position >= mAdapter.getItemCount()) {
+                return false;
+            }
+            // 局部刷新时缓存总是先于索引更新，边界position上过期的缓存已经被删除
+            if (mStickyData.get(position) != null) {
+                return true;
+            }
+            if (mAppliedSnapshot != null) {
+                return mAppliedSnapshot.getData(position) != null;
+            }
+            mFrameMetrics.obtainInsideDataCount++;
+            if (mPagedItem != null) {
+                // 建立索引时只读取已经加载的页，不能为所有的页发起请求
+                return mPagedItem.peekInsideData(position) != null;
+            }
+            return mStickyItem.obtainInsideDataByPosition(position) != null;
+        }
+    };
+
+    /**
+     * 构造函数
+     *
+     * @param adapter    需要该参数监听数据刷新的变化，以清理缓存的脏数据
+     * @param stickyItem 获取sticky view数据必要的接口
+     */
+    public LinearStickyDecoration(RecyclerView.Adapter adapter, IStickyItem stickyItem) {
+        if (stickyItem == null) {
+            return;
+        }
+        mAdapter = adapter;
+        mStickyItem = stickyItem;
+        // 没有继承SimpleStickyItem的业务实现了obtainHoverData，默认仍然使用
+        mUseSectionIndex = stickyItem instanceof SimpleStickyItem;
+        mViewPool = new StickyViewPool(new StickyViewPool.ViewFactory() {
+            @Override
+            public View createView(int viewType) {
+                if (mStickyItem instanceof IMultiTypeStickyItem) {
+                    return ((IMultiTypeStickyItem) mStickyItem).createStickyView(viewType);
+                }
+                return mStickyItem.createStickyView();
+            }
+        });
+        if (!(stickyItem instanceof IMultiTypeStickyItem)) {
+            mStickyView = stickyItem.createStickyView();
+            if (mStickyView == null) {
+                mStickyItem = null;
+                return;
+            }
+            mViewPool.put(DEFAULT_STICKY_VIEW_TYPE, mStickyView);
+        }
+        if (stickyItem instanceof TextStickyItem) {
+            mTextItem = (TextStickyItem) stickyItem;
+        }
+        if (stickyItem instanceof PagedStickyItem) {
+            mPagedItem = (PagedStickyItem) stickyItem;
+            mPagedItem.setOnPageLoadedListener(new PagedStickyItem.OnPageLoadedListener() {
+                @Override
+                public void onPageLoaded(int positionStart, int itemCount) {
+                    onStickyPageLoaded(positionStart, itemCount);
+                }
+            });
+        }
+        mStickyData.setOnRemovedListener(new StickyCache.OnRemovedListener<StickItemCacheData>() {
+            @Override
+            public void onRemoved(int key, StickItemCacheData value) {
+                // 缓存数据被淘汰或者被刷新，对应的快照以及视图的绑定关系也随之失效
+                if (mSnapshotCache != null) {
+                    mSnapshotCache.remove(value);
+                }
+                mViewPool.unbind(value);
+                if (mHoverRenderer != null) {
+                    mHoverRenderer.invalidate(value);
+                }
+                recycleCacheData(value);
+            }
+        });
+        if (adapter == null) {
+            return;
+        }
+        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                if (suppressedByDiffSession()) return;
+                resetOffsetIndex();
+                if (dropSectionSnapshot()) return;
+                clearOldData();
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount) {
+                if (suppressedByDiffSession()) return;
+                if (mOffsetIndex != null) {
+                    mOffsetIndex.invalidateRange(positionStart, itemCount);
+                }
+                // 内容变化不会改变position，快照仍然有效，只需要重新获取该区间的缓存
+                if (mPagedItem != null) {
+                    mPagedItem.invalidateRange(positionStart, itemCount);
+                }
+                SectionRangeUpdater.changeRange(mStickyData, mSectionIndex, mSectionProber, positionStart, itemCount);
+                invalidateHoverData(positionStart);
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount, @Nullable Object payload) {
+                onItemRangeChanged(positionStart, itemCount);
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                if (suppressedByDiffSession()) return;
+                if (mOffsetIndex != null) {
+                    mOffsetIndex.insert(positionStart, itemCount);
+                }
+                if (dropSectionSnapshot()) return;
+                if (mPagedItem != null) {
+                    mPagedItem.invalidateFrom(positionStart);
+                }
+                SectionRangeUpdater.insertRange(mStickyData, mSectionIndex, mSectionProber, positionStart, itemCount);
+                invalidateHoverData(positionStart);
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                if (suppressedByDiffSession()) return;
+                if (mOffsetIndex != null) {
+                    mOffsetIndex.remove(positionStart, itemCount);
+                }
+                if (dropSectionSnapshot()) return;
+                if (mPagedItem != null) {
+                    mPagedItem.invalidateFrom(positionStart);
+                }
+                SectionRangeUpdater.removeRange(mStickyData, mSectionIndex, mSectionProber, positionStart, itemCount);
+                invalidateHoverData(positionStart);
+            }
+
+            @Override
+            public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+                if (suppressedByDiffSession()) return;
+                if (mOffsetIndex != null) {
+                    // RecyclerView分发的移动事件itemCount总是1
+                    mOffsetIndex.move(fromPosition, toPosition);
+                }
+                if (dropSectionSnapshot()) return;
+                if (mPagedItem != null) {
+                    mPagedItem.invalidateFrom(Math.min(fromPosition, toPosition));
+                }
+                SectionRangeUpdater.moveRange(mStickyData, mSectionIndex, mSectionProber,
+                        fromPosition, toPosition, itemCount);
+                invalidateHoverData(Math.min(fromPosition, toPosition));
+            }
+        });
+    }
+
+    /**
+     * 设置sticky缓存在可见区域上下各保留的position数量，窗口之外的缓存会在绘制时被淘汰
+     *
+     * @param window 默认为{@link StickyCache#DEFAULT_WINDOW}
+     */
+    public void setStickyCacheWindow(int window) {
+        mStickyData.setWindow(window);
+    }
+
+    /**
+     * 当前缓存的sticky数据的数量
+     */
+    public int getStickyCacheSize() {
+        return mStickyData.size();
+    }
+
+    /**
+     * 因超出缓存窗口而被淘汰的sticky数据的总数
+     */
+    public long getStickyCacheEvictionCount() {
+        return mStickyData.getEvictionCount();
+    }
+
+    /**
+     * 开启内嵌sticky view的位图快照模式：每个sticky数据只绑定、绘制一次到位图上，之后的帧直接绘制位图
+     * <p>
+     * 快照按照LRU淘汰，并在adapter刷新对应数据时失效；适用于布局复杂、内容不随时间变化的sticky view
+     *
+     * @param maxBytes 快照位图占用的最大字节数，小于等于0则关闭快照模式
+     */
+    public void setStickySnapshotCacheSize(int maxBytes) {
+        if (mSnapshotCache != null) {
+            mSnapshotCache.clear();
+        }
+        mSnapshotCache = maxBytes > 0 ? new StickySnapshotCache(maxBytes) : null;
+    }
+
+    /**
+     * 设置某种viewType的sticky view最多缓存的数量，设置之后不再自动调整
+     * <p>
+     * 默认至少为{@link StickyViewPool#DEFAULT_MAX_VIEWS}，并随同时可见的sticky view的数量+1(悬停视图)自动扩大；
+     * 手动设置时一般不小于该数量，否则每帧都需要重新绑定数据
+     */
+    public void setMaxStickyViews(int viewType, int max) {
+        if (mViewPool != null) {
+            mViewPool.setMaxViews(viewType, max);
+        }
+    }
+
+    /**
+     * 设置沿滑动方向预取的position数量，默认为{@link StickyPrefetcher#DEFAULT_PREFETCH_COUNT}，0为关闭预取
+     * <p>
+     * 预取在主线程空闲时执行，数量不会超过缓存窗口({@link #setStickyCacheWindow(int)})，否则预取的数据会被立刻淘汰
+     */
+    public void setPrefetchCount(int prefetchCount) {
+        mPrefetcher.setPrefetchCount(prefetchCount);
+    }
+
+    /**
+     * 设置按照内容key缓存sticky view高度的最大数量，默认为{@link StickyHeightMemo#DEFAULT_MAX_KEYS}
+     */
+    public void setHeightMemoSize(int maxKeys) {
+        mHeightMemo.setMaxKeys(maxKeys);
+    }
+
+    /**
+     * 清理按照内容key缓存的sticky view高度，在sticky view的样式(如字体大小)发生变化时需要调用
+     */
+    public void clearHeightMemo() {
+        mHeightMemo.clear();
+    }
+
+    /**
+     * 是否使用内部的section索引查找悬停视图，继承了{@link SimpleStickyItem}时默认为true，否则默认为false
+     * <p>
+     * 设置为false时，悬停视图的数据通过{@link IStickyItem#obtainHoverData(int)}获取
+     */
+    public void setUseSectionIndex(boolean useSectionIndex) {
+        if (mUseSectionIndex == useSectionIndex) return;
+        mUseSectionIndex = useSectionIndex;
+        mPreObtainHoverPosition = Integer.MAX_VALUE;
+        mPreObtainHoverData = null;
+    }
+
+    /**
+     * 设置每帧的耗时统计回调，为null时不统计耗时
+     * <p>
+     * 回调在每帧的onDrawOver结束时执行(主线程)，其中的{@link StickyFrameMetrics}在帧之间复用
+     */
+    public void setOnFrameMetricsListener(OnFrameMetricsListener listener) {
+        mFrameMetricsListener = listener;
+        mFrameMetrics.reset();
+    }
+
+    /**
+     * 悬停视图当前的状态：{@link #HOVER_STATE_NONE}、{@link #HOVER_STATE_PINNED}、{@link #HOVER_STATE_PUSHING}
+     */
+    public int getHoverState() {
+        return mHoverState;
+    }
+
+    /**
+     * 悬停视图的状态迁移，只有在section变化时才计为一次切换
+     *
+     * @param data 悬停视图的数据，为null表示没有悬停视图
+     * @param offset 悬停视图被向上推动的距离
+     */
+    private void transitionHover(StickItemCacheData data, int offset) {
+        // 缓存数据被淘汰之后会重新创建，按照sticky数据判断section是否变化
+        BaseStickyData hoverData = data != null ? data.baseStickyData : null;
+        if (hoverData != mHoverData) {
+            mHoverData = hoverData;
+            mFrameMetrics.sectionTransitionCount++;
+        }
+        if (data == null) {
+            mHoverState = HOVER_STATE_NONE;
+        } else {
+            mHoverState = offset > 0 ? HOVER_STATE_PUSHING : HOVER_STATE_PINNED;
+        }
+        if (mHoverOverlay != null && mParent != null) {
+            mHoverOverlay.updateHover(mParent, hoverData, offset);
+        }
+    }
+
+    /**
+     * 悬停视图在绑定数据之外发生了变化(如：异步加载完成的图片)，使其绘制缓存失效并在下一帧重新绘制
+     */
+    public void invalidateHover() {
+        if (mHoverRenderer != null) {
+            mHoverRenderer.invalidate(null);
+        }
+        if (mParent != null) {
+            mParent.invalidate();
+        }
+    }
+
+    /**
+     * 由{@link StickyHeaderLayout#attach(LinearStickyDecoration)}调用
+     */
+    void setHoverOverlay(StickyHeaderLayout overlay) {
+        if (mHoverOverlay == overlay) return;
+        if (mHoverOverlay != null) {
+            mHoverOverlay.hideHover();
+        }
+        mHoverOverlay = overlay;
+        // 下一帧重新同步悬停视图
+        mHoverData = null;
+        if (mParent != null) {
+            mParent.invalidate();
+        }
+    }
+
+    int getStickyViewType(BaseStickyData data) {
+        if (mStickyItem instanceof IMultiTypeStickyItem) {
+            return ((IMultiTypeStickyItem) mStickyItem).getStickyViewType(data);
+        }
+        return DEFAULT_STICKY_VIEW_TYPE;
+    }
+
+    /**
+     * 为覆盖层创建独立的悬停视图，不放入缓存池
+     */
+    View createHoverView(int viewType) {
+        if (mStickyItem == null) return null;
+        if (mStickyItem instanceof IMultiTypeStickyItem) {
+            return ((IMultiTypeStickyItem) mStickyItem).createStickyView(viewType);
+        }
+        return mStickyItem.createStickyView();
+    }
+
+    @SuppressWarnings("unchecked")
+    void bindHoverView(View view, BaseStickyData data) {
+        Trace.beginSection("StickyDecoration#bindView");
+        try {
+            mFrameMetrics.bindViewCount++;
+            mStickyItem.bindView(view, data);
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * 是否缓存悬停视图的绘制结果，默认为true
+     * <p>
+     * API 29及以上的硬件加速画布中录制为RenderNode，其他情况缓存为位图；重新绑定数据、悬停的position变化以及视图requestLayout时会重新录制，
+     * 视图在绑定数据之外发生的变化(如：异步加载完成的图片)需要调用{@link #invalidateHover()}
+     */
+    public void setHoverRenderCacheEnabled(boolean enabled) {
+        if (enabled == (mHoverRenderer != null)) return;
+        if (enabled) {
+            mHoverRenderer = new StickyHoverRenderer();
+        } else {
+            mHoverRenderer.release();
+            mHoverRenderer = null;
+        }
+    }
+
+    /**
+     * 发布section快照，可以在任意线程调用；快照会在主线程的下一次布局时替换索引以及缓存
+     * <p>
+     * 快照的item数量需要与adapter一致，否则不会被使用；adapter之后的结构变化(插入、删除、移动、全量刷新)都会使当前快照失效，
+     * 此时需要为新的数据发布新的快照，在此之前通过{@link IStickyItem}获取数据；
+     * 内容变化(notifyItemRangeChanged)时快照仍然有效，只清理该区间的缓存，新的内容需要通过新发布的快照生效
+     *
+     * @param snapshot 为null时恢复为通过{@link IStickyItem}获取数据
+     */
+    public void setSectionSnapshot(SectionSnapshot snapshot) {
+        mSectionSnapshot.set(snapshot);
+        mMainHandler.post(mApplySnapshotRunnable);
+    }
+
+    /**
+     * 主线程中，切换到业务最新发布的快照
+     */
+    private void syncSectionSnapshot(RecyclerView parent) {
+        SectionSnapshot latest = mSectionSnapshot.get();
+        if (latest != null && (parent.getAdapter() == null
+                || latest.getItemCount() != parent.getAdapter().getItemCount())) {
+            latest = null;
+        }
+        if (latest == mAppliedSnapshot) return;
+        mAppliedSnapshot = latest;
+        clearOldData();
+        if (latest != null) {
+            int[] starts = latest.getStarts();
+            mSectionIndex.build(starts, starts.length, latest.getItemCount());
+        }
+    }
+
+    /**
+     * adapter的数据发生了变化，当前快照中的position已经失效
+     *
+     * @return 是否使用了快照(已经清理全部的缓存，不需要再增量更新)
+     */
+    private boolean dropSectionSnapshot() {
+        if (mAppliedSnapshot == null) return false;
+        // 业务可能已经为新数据发布了新的快照，此时不能覆盖
+        mSectionSnapshot.compareAndSet(mAppliedSnapshot, null);
+        mAppliedSnapshot = null;
+        clearOldData();
+        return true;
+    }
+
+    /**
+     * 开始一次差量提交，在主线程调用，返回的对象在后台线程准备新列表的section索引
+     *
+     * @see StickyDiffSession
+     */
+    public StickyDiffSession beginDiff() {
+        StickyDiffSession session = new StickyDiffSession(this, mParent != null ? mParent.getWidth() : 0,
+                mStickyData.getWindow(), mFrameSnapshot.firstVisiblePosition, mFrameSnapshot.lastVisiblePosition);
+        for (int i = 0, size = mStickyData.size(); i < size; i++) {
+            StickItemCacheData cacheData = mStickyData.valueAt(i);
+            if (cacheData.baseStickyData != null) {
+                session.addOldEntry(mStickyData.keyAt(i), cacheData.baseStickyData, cacheData.height);
+            }
+        }
+        return session;
+    }
+
+    StickyHeightMemo getHeightMemo() {
+        return mHeightMemo;
+    }
+
+    /**
+     * 新的一次提交直接取代之前还没有commit的提交(如：ListAdapter连续submitList，之前的commitCallback不会被调用)
+     */
+    void armDiffSession(StickyDiffSession session) {
+        mArmedDiffSession = session;
+        session.generation = ++mDiffGeneration;
+        mArmedItemCount = mAdapter != null ? mAdapter.getItemCount() : 0;
+        mArmedEventsSuppressed = false;
+    }
+
+    /**
+     * 有arm的session时忽略adapter的刷新事件，由commit统一替换索引以及缓存
+     */
+    private boolean suppressedByDiffSession() {
+        if (mArmedDiffSession == null) return false;
+        mArmedEventsSuppressed = true;
+        return true;
+    }
+
+    /**
+     * arm之后一直没有commit(如：业务忘记调用、提交过程中抛出了异常)时，被忽略的刷新事件会让索引以及缓存一直停留在旧列表上；
+     * 列表已经分发了刷新事件之后的下一帧(布局或者绘制)，或者adapter的item数量与arm时不一致，视为该session已经失效，全部清理后重新建立
+     */
+    private void expireArmedDiffSession() {
+        if (mArmedDiffSession == null) return;
+        if (!mArmedEventsSuppressed && (mAdapter == null || mAdapter.getItemCount() == mArmedItemCount)) {
+            // 还在等待后台线程的差量结果(如：AsyncListDiffer)，列表没有变化
+            return;
+        }
+        mArmedDiffSession = null;
+        // 之后到达的commit会被忽略
+        mDiffGeneration++;
+        resetOffsetIndex();
+        if (!dropSectionSnapshot()) {
+            clearOldData();
+        }
+    }
+
+    /**
+     * 列表提交完成，替换section索引以及缓存；没有准备好或者数据不一致时，全部清理后重新建立
+     */
+    void commitDiffSession(StickyDiffSession session) {
+        if (session.generation != 0 && session.generation != mDiffGeneration) {
+            // 已经被更新的一次提交取代，由更新的提交替换索引以及缓存
+            return;
+        }
+        mArmedDiffSession = null;
+        // 先检查准备的结果，清理缓存不会影响检查
+        boolean prepared = session.isPreparedFor(mAdapter);
+        // 提交过程中的结构变化没有同步到偏移索引，重新测量
+        resetOffsetIndex();
+        if (mStickyItem == null) {
+            return;
+        }
+        // 提交过程中的刷新事件被忽略了，需要在这里让旧的快照失效
+        if (!dropSectionSnapshot()) {
+            clearOldData();
+        }
+        if (!prepared) {
+            return;
+        }
+        mSectionIndex = session.sectionIndex;
+        for (int i = 0; i < session.preparedCount; i++) {
+            StickItemCacheData cacheData = newCacheData();
+            cacheData.width = session.width;
+            cacheData.baseStickyData = session.preparedData[i];
+            cacheData.height = session.preparedHeights[i];
+            mStickyData.put(session.preparedPositions[i], cacheData);
+        }
+    }
+
+    /**
+     * 在数据重新刷新的时候(notifyDataSetChanged()之前)，要调用一下，清理一些缓存的sticky脏数据
+     */
+    private void clearOldData() {
+        if (mPagedItem != null) {
+            mPagedItem.invalidatePages();
+        }
+        mStickyData.clear();
+        mSectionIndex.invalidate();
+        if (mSnapshotCache != null) {
+            mSnapshotCache.clear();
+        }
+        mViewPool.unbindAll();
+        mBoundData = null;
+        mBoundHolder = null;
+        mHoverData = null;
+        mHoverState = HOVER_STATE_NONE;
+        if (mHoverOverlay != null) {
+            mHoverOverlay.invalidateBinding();
+        }
+        if (mHoverRenderer != null) {
+            mHoverRenderer.invalidate(null);
+        }
+        mPreObtainHoverPosition = Integer.MAX_VALUE;
+        mPreStickyCacheData = null;
+        mPreStickyPosition = RecyclerView.NO_POSITION;
+        mPreObtainHoverData = null;
+    }
+
+    /**
+     * 分页数据加载完成：只失效该页对应的缓存，该页位于可见区域附近时才刷新decoration
+     */
+    private void onStickyPageLoaded(int positionStart, int itemCount) {
+        mStickyData.invalidateRange(positionStart, itemCount);
+        mSectionIndex.changeRange(positionStart, itemCount, mSectionProber);
+        invalidateHoverData(positionStart);
+        RecyclerView parent = mParent;
+        StickyFrameSnapshot snapshot = mFrameSnapshot;
+        if (parent == null || !snapshot.hasVisibleChild()) {
+            return;
+        }
+        int window = mStickyData.getWindow();
+        if (positionStart <= snapshot.lastVisiblePosition + window
+                && positionStart + itemCount > snapshot.firstVisiblePosition - window) {
+            // 刷新offset以及悬停视图
+            parent.invalidateItemDecorations();
+        }
+    }
+
+    /**
+     * 回收被移出缓存的数据结构，仍被悬停视图使用的数据不能回收
+     */
+    private void recycleCacheData(StickItemCacheData data) {
+        if (data == mPreStickyCacheData || data == mPreObtainHoverData || data == mHoverCacheData
+                || mRecycledCacheData.size() >= MAX_RECYCLED_CACHE_DATA) {
+            return;
+        }
+        data.baseStickyData = null;
+        data.height = 0;
+        data.width = 0;
+        mRecycledCacheData.add(data);
+    }
+
+    private StickItemCacheData newCacheData() {
+        int size = mRecycledCacheData.size();
+        return size > 0 ? mRecycledCacheData.remove(size - 1) : new StickItemCacheData();
+    }
+
+    /**
+     * 局部刷新时，悬停数据只依赖于其position之上的数据，
+     * 所以只有在变化的区间起点不在悬停position之后时，才需要清理悬停的缓存数据
+     *
+     * @param positionStart 变化区间的起点
+     */
+    private void invalidateHoverData(int positionStart) {
+        if (mPreObtainHoverPosition != Integer.MAX_VALUE && positionStart <= mPreObtainHoverPosition) {
+            mPreObtainHoverPosition = Integer.MAX_VALUE;
+            mPreObtainHoverData = null;
+        }
+        if (mPreStickyPosition != RecyclerView.NO_POSITION && positionStart <= mPreStickyPosition) {
+            mPreStickyCacheData = null;
+            mPreStickyPosition = RecyclerView.NO_POSITION;
+        }
+    }
+
+    @Override
+    public void onDrawOver(Canvas c, RecyclerView parent, RecyclerView.State state) {
+        if (mStickyItem == null) {
+            return;
+        }
+        OnFrameMetricsListener listener = mFrameMetricsListener;
+        long start = listener != null ? System.nanoTime() : 0;
+        Trace.beginSection("StickyDecoration#onDrawOver");
+        try {
+            drawOver(c, parent);
+        } finally {
+            Trace.endSection();
+        }
+        if (listener != null) {
+            mFrameMetrics.drawOverNanos = System.nanoTime() - start;
+            listener.onFrameMetrics(mFrameMetrics);
+        }
+        mFrameMetrics.reset();
+    }
+
+    private void drawOver(Canvas c, RecyclerView parent) {
+        mParent = parent;
+        expireArmedDiffSession();
+        updateOffsetIndex(parent);
+        if (parent.getAdapter().getItemCount() <= 0) {
+            transitionHover(null, 0);
+            return;
+        }
+        ensureSectionIndex(parent);
+        mPrefetcher.attach(parent);
+        // 绘制前先重置拦截事件的区域
+        interceptStickyTouchEvent(parent, 0);
+        StickyFrameSnapshot snapshot = buildFrameSnapshot(parent);
+        // 可见的sticky view以及悬停视图都需要各自的视图，否则按照LRU复用时每帧都会重新绑定
+        mViewPool.ensureDefaultMaxViews(snapshot.count + 1);
+        // 第一阶段：绘制所有内部的sticky view分隔视图(类似于分割线)
+        for (int i = 0; i < snapshot.count; i++) {
+            drawInsideStickyView(c, (StickItemCacheData) snapshot.data[i], snapshot.tops[i]);
+        }
+        // 第二阶段：绘制悬停视图
+        if (snapshot.count > 0) {
+            drawHoverView(c, parent, snapshot);
+        } else {
+            // 处理当前展示的ui中没有sticky view
+            if (mPreStickyCacheData == null && isHoverFromSectionIndex() && snapshot.hasVisibleChild()) {
+                // 缓存的悬停数据被局部刷新清理掉了，通过section索引重新查找
+                mPreStickyCacheData = obtainHoverCacheData(snapshot.firstVisiblePosition, parent.getWidth());
+                mPreStickyPosition = mPreStickyCacheData != null
+                        ? snapshot.firstVisiblePosition : RecyclerView.NO_POSITION;
+            }
+            if (mPreStickyCacheData != null && mHoverOverlay == null) {
+                bindData(mPreStickyCacheData);
+                drawHoverStickyView(c, mPreStickyCacheData, 0);
+                interceptStickyTouchEvent(parent, mStickyViewHeight);
+            }
+            transitionHover(mPreStickyCacheData, 0);
+        }
+        if (snapshot.hasVisibleChild()) {
+            mStickyData.trimToWindow(snapshot.firstVisiblePosition, snapshot.lastVisiblePosition);
+            mPrefetcher.schedule(snapshot.firstVisiblePosition, snapshot.lastVisiblePosition,
+                    mStickyData.getWindow());
+        }
+    }
+
+    /**
+     * 遍历一次子view，生成本帧可见的sticky view布局快照
+     */
+    private StickyFrameSnapshot buildFrameSnapshot(RecyclerView parent) {
+        mChildRows.attach(parent);
+        StickyLayoutEngine.fillSnapshot(mFrameSnapshot, mChildRows);
+        mChildRows.detach();
+        return mFrameSnapshot;
+    }
+
+    /**
+     * 根据首个可见的sticky view，绘制悬停视图
+     */
+    private void drawHoverView(Canvas c, RecyclerView parent, StickyFrameSnapshot snapshot) {
+        int position = snapshot.positions[0];
+        StickItemCacheData currentCacheData = (StickItemCacheData) snapshot.data[0];
+        StickItemCacheData stickCacheData = currentCacheData;
+        // 如果当前的首个sticky view的顶部值大于0(即：在页面中完全可见)，说明需要悬停的是上一个sticky view的视图
+        // 则需要获取上一个悬停视图的数据结构
+        boolean hoverPrevious = StickyLayoutEngine.isHoverPreviousSection(snapshot);
+        if (hoverPrevious) {
+            int hoverPosition = StickyLayoutEngine.resolveHoverPosition(snapshot);
+            // 优化：每次都调用obtainHoverData，在position一致的情况下，不需要重复调用
+            if (mPreObtainHoverPosition != hoverPosition) {
+                mPreObtainHoverPosition = hoverPosition;
+                stickCacheData = obtainHoverCacheData(mPreObtainHoverPosition, currentCacheData.width);
+                mPreObtainHoverData = stickCacheData;
+            } else {
+                stickCacheData = mPreObtainHoverData;
+            }
+            // 数据结构为null，则不绘制
+            if (stickCacheData == null) {
+                transitionHover(null, 0);
+                return;
+            }
+        }
+        mPreStickyCacheData = stickCacheData;
+        mPreStickyPosition = hoverPrevious ? mPreObtainHoverPosition : position;
+        if (mHoverOverlay != null) {
+            // 悬停视图由覆盖层中的真实视图展示，不需要绑定缓存池中的视图、绘制以及拦截点击事件
+            mStickyViewMarginTop = StickyLayoutEngine.computeHoverOffset(snapshot, stickCacheData.height);
+            transitionHover(stickCacheData, mStickyViewMarginTop);
+            return;
+        }
+        // 重新绑定数据
+        bindData(stickCacheData);
+        // 悬停视图被下一个sticky view向上推动的距离
+        mStickyViewMarginTop = StickyLayoutEngine.computeHoverOffset(snapshot, mStickyViewHeight);
+        transitionHover(stickCacheData, mStickyViewMarginTop);
+        drawHoverStickyView(c, stickCacheData, mStickyViewMarginTop);
+        interceptStickyTouchEvent(parent,
+                StickyLayoutEngine.computeInterceptBottom(mStickyViewHeight, mStickyViewMarginTop));
+    }
+
+    @Override
+    public void getItemOffsets(Rect outRect, View view, RecyclerView parent, RecyclerView.State state) {
+//        Log.e("chen", "w = " + view.getMeasuredWidth() + " c = " + parent.getChildLayoutPosition(view));
+        if (mStickyItem == null) {
+            return;
+        }
+        boolean measureTime = mFrameMetricsListener != null;
+        long start = measureTime ? System.nanoTime() : 0;
+        Trace.beginSection("StickyDecoration#getItemOffsets");
+        try {
+            int position = parent.getChildLayoutPosition(view);
+            // 分发了刷新事件之后的首次布局就需要使用新列表的数据
+            expireArmedDiffSession();
+            ensureSectionIndex(parent);
+            StickItemCacheData cacheData = obtainInsideCacheData(position, parent.getWidth());
+            if (cacheData != null) {
+                outRect.set(0, cacheData.height, 0, 0);
+            }
+        } finally {
+            Trace.endSection();
+        }
+        if (measureTime) {
+            mFrameMetrics.itemOffsetsNanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * 获取position所属section的起点，在首个section之前则返回{@link RecyclerView#NO_POSITION}
+     */
+    int getSectionStart(RecyclerView parent, int position) {
+        if (mStickyItem == null) {
+            return RecyclerView.NO_POSITION;
+        }
+        ensureSectionIndex(parent);
+        return findSectionStart(position);
+    }
+
+    /**
+     * 获取position之后的下一个section的起点，没有则返回{@link RecyclerView#NO_POSITION}
+     */
+    int getNextSection(RecyclerView parent, int position) {
+        if (mStickyItem == null) {
+            return RecyclerView.NO_POSITION;
+        }
+        ensureSectionIndex(parent);
+        return findNextSection(parent, position);
+    }
+
+    /**
+     * section索引是否已经建立完成；未完成时安排在主线程空闲时继续建立，不会在当前线程探测
+     */
+    public boolean isSectionIndexBuilt(RecyclerView parent) {
+        if (mStickyItem == null) {
+            return false;
+        }
+        ensureSectionIndex(parent);
+        return mSectionIndex.isBuilt();
+    }
+
+    /**
+     * section的数量
+     * <p>
+     * section索引还没有建立完成时，会在当前线程探测剩余的所有position，绘制过程中可以先通过{@link #isSectionIndexBuilt(RecyclerView)}判断
+     */
+    public int getSectionCount(RecyclerView parent) {
+        if (mStickyItem == null) {
+            return 0;
+        }
+        ensureSectionIndexBuilt(parent);
+        return mSectionIndex.size();
+    }
+
+    /**
+     * 获取position所属section的序号，在首个section之前则返回-1
+     * <p>
+     * section索引还没有探测到position时，会在当前线程探测到position为止
      */
-    private View mStickyView;
+    public int getSectionOfPosition(RecyclerView parent, int position) {
+        if (mStickyItem == null) {
+            return -1;
+        }
+        ensureSectionIndex(parent);
+        if (!mSectionIndex.isProbed(position)) {
+            mSectionIndex.probe(position + 1 - mSectionIndex.getProbedCount(), mSectionProber);
+        }
+        return mSectionIndex.sectionOf(position);
+    }
+
     /**
-     * 悬停视图距离顶部的距离
+     * 获取第section个section的sticky数据
      */
-    private int mStickyViewMarginTop;
+    public BaseStickyData getSectionData(RecyclerView parent, int section) {
+        if (mStickyItem == null || section < 0 || section >= getSectionCount(parent)) {
+            return null;
+        }
+        StickItemCacheData cacheData = obtainInsideCacheData(mSectionIndex.get(section), parent.getWidth());
+        return cacheData != null ? cacheData.baseStickyData : null;
+    }
+
     /**
-     * 悬停视图的高度
+     * 当前悬停视图的sticky数据，没有悬停视图时返回null
      */
-    private int mStickyViewHeight;
+    public BaseStickyData getHoverStickyData() {
+        return mPreStickyCacheData != null ? mPreStickyCacheData.baseStickyData : null;
+    }
+
     /**
-     * sticky数据源
+     * 直接跳转到第section个section，该section的sticky view位于顶部
+     * <p>
+     * section的序号通过二分查找转换为position，只调用一次scrollToPositionWithOffset，不会平滑滑动经过中间的item
      */
-    private Map<Integer, StickItemCacheData> mStickyData = new HashMap<>(100);
+    public void scrollToSection(RecyclerView parent, int section) {
+        int count = getSectionCount(parent);
+        if (count <= 0) return;
+        section = Math.max(0, Math.min(section, count - 1));
+        // getItemOffsets中sticky view的高度是item的顶部装饰，offset为0时sticky view正好位于顶部
+        scrollToPositionWithOffset(parent, mSectionIndex.get(section), 0);
+    }
+
     /**
-     * sticky item 业务需要实现的接口
+     * 跳转到position，position不是section起点时，需要让出悬停视图的高度，否则item的顶部会被悬停视图遮挡
      */
-    private IStickyItem mStickyItem;
+    public void scrollToPosition(RecyclerView parent, int position) {
+        int offset = 0;
+        int sectionStart = getSectionStart(parent, position);
+        if (sectionStart != RecyclerView.NO_POSITION && sectionStart != position) {
+            offset = getInsideStickyHeight(parent, sectionStart);
+        }
+        scrollToPositionWithOffset(parent, position, offset);
+    }
+
+    private static void scrollToPositionWithOffset(RecyclerView parent, int position, int offset) {
+        RecyclerView.LayoutManager layoutManager = parent.getLayoutManager();
+        if (layoutManager instanceof LinearLayoutManager) {
+            ((LinearLayoutManager) layoutManager).scrollToPositionWithOffset(position, offset);
+        } else if (layoutManager instanceof StaggeredGridLayoutManager) {
+            ((StaggeredGridLayoutManager) layoutManager).scrollToPositionWithOffset(position, offset);
+        } else if (layoutManager != null) {
+            layoutManager.scrollToPosition(position);
+        }
+    }
+
     /**
-     * 保存上一次绘制的悬停视图的数据结构，无论top>0还是top<0，都需要绘制
+     * 开启滑动偏移索引，默认关闭
+     * <p>
+     * 每帧绘制时记录可见item包含装饰(sticky view、分割线等)的高度，未测量过的item按照平均高度估算；
+     * 只支持纵向的{@link LinearLayoutManager}，每个position占用一个int以及一个long的内存
      */
-    private StickItemCacheData mPreStickyCacheData = null;
+    public void setScrollOffsetIndexEnabled(boolean enabled) {
+        if (enabled == (mOffsetIndex != null)) return;
+        mOffsetIndex = enabled ? new ScrollOffsetIndex() : null;
+        if (mParent instanceof MyRecyclerView) {
+            ((MyRecyclerView) mParent).setScrollOffsetSource(enabled ? this : null);
+        }
+    }
+
     /**
-     * 上一次缓存hover数据的position
+     * position顶部(包含其之上嵌入的sticky view)距离列表内容顶部的偏移，未开启偏移索引时返回-1
      */
-    private int mPreObtainHoverPosition = Integer.MAX_VALUE;
+    public int getOffsetOfPosition(int position) {
+        if (mOffsetIndex == null) return -1;
+        return clampToInt(mOffsetIndex.offsetOf(position));
+    }
+
     /**
-     * 上一次缓存hover数据的data，区别于{@link #mPreStickyCacheData}，只有在top>0的时候才会获取该数据
+     * 列表内容中的偏移所在的position，未开启偏移索引或者没有item时返回{@link RecyclerView#NO_POSITION}
      */
-    private StickItemCacheData mPreObtainHoverData = null;
+    public int getPositionAtOffset(int offset) {
+        if (mOffsetIndex == null) return RecyclerView.NO_POSITION;
+        return mOffsetIndex.positionAt(offset);
+    }
 
     /**
-     * 构造函数
+     * 当前的滑动偏移，可以保存之后通过{@link #scrollToOffset(RecyclerView, int)}恢复
      *
-     * @param adapter    需要该参数监听数据刷新的变化，以清理缓存的脏数据
-     * @param stickyItem 获取sticky view数据必要的接口
+     * @return 未开启偏移索引或者不支持当前的LayoutManager时返回-1
      */
-    public LinearStickyDecoration(RecyclerView.Adapter adapter, IStickyItem stickyItem) {
-        if (stickyItem == null) {
-            return;
+    public int computeVerticalScrollOffset(RecyclerView parent) {
+        if (!isOffsetIndexAvailable(parent) || parent.getChildCount() <= 0) return -1;
+        View first = parent.getChildAt(0);
+        int position = parent.getChildLayoutPosition(first);
+        if (position == RecyclerView.NO_POSITION) return -1;
+        RecyclerView.LayoutManager layoutManager = parent.getLayoutManager();
+        int top = layoutManager.getDecoratedTop(first) - ((RecyclerView.LayoutParams) first.getLayoutParams()).topMargin;
+        return Math.max(clampToInt(mOffsetIndex.offsetOf(position)) - (top - parent.getPaddingTop()), 0);
+    }
+
+    /**
+     * 列表内容的总高度(包含padding)
+     *
+     * @return 未开启偏移索引或者不支持当前的LayoutManager时返回-1
+     */
+    public int computeVerticalScrollRange(RecyclerView parent) {
+        if (!isOffsetIndexAvailable(parent)) return -1;
+        return clampToInt(mOffsetIndex.totalHeight() + parent.getPaddingTop() + parent.getPaddingBottom());
+    }
+
+    /**
+     * 按照像素偏移恢复滑动位置：二分查找偏移所在的position，只调用一次scrollToPositionWithOffset
+     */
+    public void scrollToOffset(RecyclerView parent, int offset) {
+        if (mOffsetIndex == null) return;
+        updateOffsetIndex(parent);
+        int position = mOffsetIndex.positionAt(offset);
+        if (position == ScrollOffsetIndex.NO_POSITION) return;
+        scrollToPositionWithOffset(parent, position, clampToInt(mOffsetIndex.offsetOf(position)) - offset);
+    }
+
+    /**
+     * 偏移索引是否可以用于计算当前列表的滑动偏移
+     */
+    boolean isOffsetIndexAvailable(RecyclerView parent) {
+        if (mOffsetIndex == null || parent.getAdapter() == null) return false;
+        RecyclerView.LayoutManager layoutManager = parent.getLayoutManager();
+        // 网格中同一行的多个position共享高度，前缀和不再等于偏移
+        return layoutManager instanceof LinearLayoutManager
+                && !(layoutManager instanceof GridLayoutManager)
+                && ((LinearLayoutManager) layoutManager).getOrientation() == RecyclerView.VERTICAL
+                && mOffsetIndex.size() == parent.getAdapter().getItemCount();
+    }
+
+    private void resetOffsetIndex() {
+        if (mOffsetIndex != null) {
+            mOffsetIndex.reset(mParent != null && mParent.getAdapter() != null
+                    ? mParent.getAdapter().getItemCount() : 0);
         }
-        mStickyItem = stickyItem;
-        mStickyView = mStickyItem.createStickyView();
-        if (adapter == null) {
-            return;
+    }
+
+    /**
+     * 记录可见item包含装饰的高度，getItemOffsets已经在布局时把sticky view的高度加入了item的顶部装饰
+     */
+    private void updateOffsetIndex(RecyclerView parent) {
+        if (mOffsetIndex == null || parent.getAdapter() == null) return;
+        if (parent instanceof MyRecyclerView) {
+            ((MyRecyclerView) parent).setScrollOffsetSource(this);
         }
-        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
-            @Override
-            public void onChanged() {
-                clearOldData();
-            }
+        int itemCount = parent.getAdapter().getItemCount();
+        if (mOffsetIndex.size() != itemCount) {
+            mOffsetIndex.reset(itemCount);
+        }
+        RecyclerView.LayoutManager layoutManager = parent.getLayoutManager();
+        if (layoutManager == null) return;
+        for (int i = 0, count = parent.getChildCount(); i < count; i++) {
+            View child = parent.getChildAt(i);
+            RecyclerView.LayoutParams params = (RecyclerView.LayoutParams) child.getLayoutParams();
+            // 正在执行删除动画的item不再占用位置
+            if (params.isItemRemoved()) continue;
+            int position = params.getViewLayoutPosition();
+            mOffsetIndex.setHeight(position, layoutManager.getDecoratedMeasuredHeight(child)
+                    + params.topMargin + params.bottomMargin);
+        }
+    }
 
-            @Override
-            public void onItemRangeChanged(int positionStart, int itemCount) {
-                clearOldData();
-            }
+    private static int clampToInt(long value) {
+        return (int) Math.max(Math.min(value, Integer.MAX_VALUE), Integer.MIN_VALUE);
+    }
 
-            @Override
-            public void onItemRangeChanged(int positionStart, int itemCount, @Nullable Object payload) {
-                clearOldData();
-            }
+    /**
+     * 获取position之上嵌入的sticky view的高度，不需要嵌入则返回0
+     */
+    int getInsideStickyHeight(RecyclerView parent, int position) {
+        if (mStickyItem == null) {
+            return 0;
+        }
+        StickItemCacheData cacheData = obtainInsideCacheData(position, parent.getWidth());
+        return cacheData != null ? cacheData.height : 0;
+    }
 
-            @Override
-            public void onItemRangeInserted(int positionStart, int itemCount) {
-                clearOldData();
-            }
+    /**
+     * 在首次使用或者全量刷新之后，开始重新建立section索引；索引在主线程空闲时分批建立，不会阻塞当前帧
+     */
+    private void ensureSectionIndex(RecyclerView parent) {
+        syncSectionSnapshot(parent);
+        if (mSectionIndex.isBuilt() || parent.getAdapter() == null) return;
+        if (!mSectionIndex.isBuilding()) {
+            mSectionIndex.begin(parent.getAdapter().getItemCount());
+        }
+        mIndexBuilder.schedule();
+    }
 
-            @Override
-            public void onItemRangeRemoved(int positionStart, int itemCount) {
-                clearOldData();
+    /**
+     * 需要完整的section索引时(如：section的数量)，同步探测剩余的position
+     */
+    private void ensureSectionIndexBuilt(RecyclerView parent) {
+        ensureSectionIndex(parent);
+        if (!mSectionIndex.isBuilt()) {
+            mSectionIndex.probe(Integer.MAX_VALUE, mSectionProber);
+        }
+    }
+
+    /**
+     * 获取position所属section的起点；索引还没有探测到position时，从position向前逐个探测，直到遇到起点或者已探测的区间
+     *
+     * @return 在首个section之前则返回{@link RecyclerView#NO_POSITION}
+     */
+    private int findSectionStart(int position) {
+        if (mSectionIndex.isProbed(position)) {
+            return mSectionIndex.floor(position);
+        }
+        int probedCount = mSectionIndex.getProbedCount();
+        for (int p = position; p >= probedCount; p--) {
+            if (mSectionProber.isSectionStart(p)) {
+                return p;
             }
+        }
+        return probedCount > 0 ? mSectionIndex.floor(probedCount - 1) : RecyclerView.NO_POSITION;
+    }
 
-            @Override
-            public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
-                clearOldData();
+    /**
+     * 获取position之后的下一个section的起点；索引中没有时，从已探测的区间之后逐个探测
+     *
+     * @return 没有则返回{@link RecyclerView#NO_POSITION}
+     */
+    private int findNextSection(RecyclerView parent, int position) {
+        int next = mSectionIndex.next(position);
+        if (next != SectionIndex.NO_POSITION || mSectionIndex.isBuilt() || parent.getAdapter() == null) {
+            return next;
+        }
+        for (int p = Math.max(position + 1, mSectionIndex.getProbedCount()),
+             itemCount = parent.getAdapter().getItemCount(); p < itemCount; p++) {
+            if (mSectionProber.isSectionStart(p)) {
+                return p;
             }
-        });
+        }
+        return RecyclerView.NO_POSITION;
     }
 
     /**
-     * 在数据重新刷新的时候(notifyDataSetChanged()之前)，要调用一下，清理一些缓存的sticky脏数据
+     * 获取position之上嵌入的sticky view的数据，不需要嵌入则返回null
      */
-    private void clearOldData() {
-        mStickyData.clear();
-        mPreObtainHoverPosition = Integer.MAX_VALUE;
-        mPreStickyCacheData = null;
-        mPreObtainHoverData = null;
+    private StickItemCacheData obtainInsideCacheData(int position, int width) {
+        StickItemCacheData cacheData = mStickyData.get(position);
+        if (cacheData != null) {
+            mFrameMetrics.cacheHitCount++;
+            return cacheData;
+        }
+        if (mAppliedSnapshot != null) {
+            return obtainSnapshotCacheData(position, width);
+        }
+        if (mPagedItem != null) {
+            // 未加载的页在索引中没有section起点，需要在这里发起请求
+            mPagedItem.requestPage(position);
+        }
+        // section索引已经探测过该position，非section起点的position不需要再询问业务方
+        if (mSectionIndex.isProbed(position) && !mSectionIndex.isSectionStart(position)) {
+            return null;
+        }
+        mFrameMetrics.obtainInsideDataCount++;
+        BaseStickyData data = mStickyItem.obtainInsideDataByPosition(position);
+        if (data == null) {
+            return null;
+        }
+        // 只有section起点的数据不在缓存中才算作未命中
+        mFrameMetrics.cacheMissCount++;
+        cacheData = newCacheData();
+        cacheData.width = width;
+        cacheData.baseStickyData = data;
+        mStickyData.put(position, cacheData);
+        cacheData.height = resolveStickyHeight(cacheData);
+        return cacheData;
     }
 
-    @Override
-    public void onDrawOver(Canvas c, RecyclerView parent, RecyclerView.State state) {
-        if (mStickyItem == null || mStickyView == null) {
-            return;
+    /**
+     * 从section快照中获取position之上嵌入的sticky view的数据，快照中预先计算了高度时不需要measure
+     */
+    private StickItemCacheData obtainSnapshotCacheData(int position, int width) {
+        BaseStickyData data = mAppliedSnapshot.getData(position);
+        if (data == null) {
+            return null;
         }
-        if (parent.getAdapter().getItemCount() <= 0) return;
-//        mLayoutManager = (LinearLayoutManager) parent.getLayoutManager();
-        // 绘制前先重置拦截事件的区域
-        interceptStickyTouchEvent(parent, 0);
-        // 是否已经绘制过悬停视图
-        boolean hasDrawHoverView = false;
-        for (int m = 0, size = parent.getChildCount(); m < size; m++) {
-            View view = parent.getChildAt(m);
-            int position = parent.getChildLayoutPosition(view);
-            StickItemCacheData currentCacheData = mStickyData.get(position);
-            // baseStickyData 不为空，说明在该view之上需要绘制分隔视图
-            if (currentCacheData != null && currentCacheData.baseStickyData != null) {
-                // 第一阶段：绘制所有内部的sticky view分隔视图(类似于分割线)
-                bindData(currentCacheData);
-                drawStickyView(c, currentCacheData.height - view.getTop());
-                // 只绘制一次sticky view
-                if (hasDrawHoverView) {
-                    continue;
-                }
-                // 第二阶段：绘制悬停视图
-                hasDrawHoverView = true;
-                StickItemCacheData stickCacheData = currentCacheData;
-                // 获取首个sticky view的top值
-                int currentViewTop = view.getTop() - currentCacheData.height;
-                // 如果当前的首个sticky view的顶部值大于0(即：在页面中完全可见)，说明需要悬停的是上一个sticky view的视图
-                // 则需要获取上一个悬停视图的数据结构
-                if (currentViewTop > 0) {
-                    // 优化：每次都调用obtainHoverData，在position一致的情况下，不需要重复调用
-                    if (mPreObtainHoverPosition != position - 1) {
-                        mPreObtainHoverPosition = position - 1;
-                        stickCacheData = new StickItemCacheData();
-                        stickCacheData.baseStickyData = mStickyItem.obtainHoverData(mPreObtainHoverPosition);
-                        // 数据结构为null，则不绘制
-                        if (stickCacheData.baseStickyData == null) {
-                            mPreObtainHoverData = null;
-                            continue;
-                        }
-                        stickCacheData.width = currentCacheData.width;
-                        // 绑定数据 & measure & layout
-                        bindData(stickCacheData);
-                        stickCacheData.height = getStickyItemHeight(stickCacheData.baseStickyData);
-                        mPreObtainHoverData = stickCacheData;
-                    } else if ((stickCacheData = mPreObtainHoverData) == null) {
-                        continue;
-                    }
-                }
-                mPreStickyCacheData = stickCacheData;
-                // 重新绑定数据
-                bindData(stickCacheData);
-                // 当前的首个sticky view的顶部值大于0，并且其小于悬停视图的高度
-                // (说明：下个sticky view将要被盖在悬停的视图下面，故需要将悬停的视图联动)
-                if (currentViewTop > 0 && currentViewTop <= mStickyViewHeight) {
-                    mStickyViewMarginTop = mStickyViewHeight - currentViewTop;
-                } else {
-                    mStickyViewMarginTop = 0;
-                    // 查找下一个sticky view，在当前悬停的视图还没有被remove的情况下，需要与下一个sticky view联动
-                    // (比如悬停的视图很高，下一个sticky view高度很小，
-                    // 此时currentViewTop < 0并且下一个sticky view距离顶部的距离已经小于当前悬停的view的高度)
-                    int nextStickyViewTop = getNextStickyViewTop(parent);
-                    if (nextStickyViewTop > 0 && nextStickyViewTop <= mStickyViewHeight) {
-                        mStickyViewMarginTop = mStickyViewHeight - nextStickyViewTop;
-                    }
-                }
-                drawStickyView(c, mStickyViewMarginTop);
-                interceptStickyTouchEvent(parent, mStickyViewHeight - mStickyViewMarginTop);
+        mFrameMetrics.cacheMissCount++;
+        StickItemCacheData cacheData = newCacheData();
+        cacheData.width = width;
+        cacheData.baseStickyData = data;
+        mStickyData.put(position, cacheData);
+        int height = mAppliedSnapshot.getHeight(position);
+        cacheData.height = height > 0 ? height : resolveStickyHeight(cacheData);
+        return cacheData;
+    }
+
+    /**
+     * 是否通过section索引查找悬停视图；使用快照时主线程不再读取业务的可变列表，悬停视图也通过快照建立的索引查找
+     */
+    private boolean isHoverFromSectionIndex() {
+        return mUseSectionIndex || mAppliedSnapshot != null;
+    }
+
+    /**
+     * 获取在position处悬停的sticky view的数据，不需要悬停则返回null
+     */
+    private StickItemCacheData obtainHoverCacheData(int position, int width) {
+        if (isHoverFromSectionIndex()) {
+            int headPosition = findSectionStart(position);
+            if (mPagedItem != null) {
+                // 起点之后还没有加载的页中可能有更近的起点，加载完成之后会重新查找悬停视图
+                mPagedItem.requestPagesBefore(position, headPosition);
             }
+            return headPosition == RecyclerView.NO_POSITION ? null : obtainInsideCacheData(headPosition, width);
         }
-        // 处理当前展示的ui中没有sticky view
-        if (!hasDrawHoverView && mPreStickyCacheData != null) {
-            bindData(mPreStickyCacheData);
-            drawStickyView(c, 0);
-            interceptStickyTouchEvent(parent, mStickyViewHeight);
+        mFrameMetrics.obtainHoverDataCount++;
+        BaseStickyData data = mStickyItem.obtainHoverData(position);
+        if (data == null) {
+            return null;
+        }
+        // 复用同一个数据结构，需要先解除视图与旧数据的绑定关系
+        if (mHoverCacheData == null) {
+            mHoverCacheData = new StickItemCacheData();
+        } else {
+            mViewPool.unbind(mHoverCacheData);
+            if (mHoverRenderer != null) {
+                mHoverRenderer.invalidate(mHoverCacheData);
+            }
         }
+        StickItemCacheData cacheData = mHoverCacheData;
+        cacheData.baseStickyData = data;
+        cacheData.width = width;
+        cacheData.height = resolveStickyHeight(cacheData);
+        return cacheData;
     }
 
-    @Override
-    public void getItemOffsets(Rect outRect, View view, RecyclerView parent, RecyclerView.State state) {
-//        Log.e("chen", "w = " + view.getMeasuredWidth() + " c = " + parent.getChildLayoutPosition(view));
-        if (mStickyItem == null || mStickyView == null) {
-            return;
+    /**
+     * 获取sticky view的高度，依次使用{@link BaseStickyData#definitelyHeight}、按内容key缓存的高度，
+     * 都没有时才绑定数据 & measure & layout
+     */
+    private int resolveStickyHeight(StickItemCacheData cacheData) {
+        BaseStickyData data = cacheData.baseStickyData;
+        if (data.definitelyHeight > 0) {
+            return data.definitelyHeight;
         }
-        int position = parent.getChildLayoutPosition(view);
-        if (mStickyData.get(position) == null) {
-            BaseStickyData data = mStickyItem.obtainInsideDataByPosition(position);
-            if (data == null) {
-                return;
+        Object contentKey = data.getContentKey();
+        int viewType = contentKey != null ? getStickyViewType(data) : DEFAULT_STICKY_VIEW_TYPE;
+        int height = mHeightMemo.get(contentKey, viewType, cacheData.width);
+        if (height > 0) {
+            return height;
+        }
+        if (mTextItem != null) {
+            height = mTextItem.getPrecomputedHeight(data, cacheData.width);
+            if (height > 0) {
+                mHeightMemo.put(contentKey, viewType, cacheData.width, height);
+                return height;
             }
-            StickItemCacheData cacheData = new StickItemCacheData();
-            cacheData.width = parent.getWidth();
-            cacheData.baseStickyData = data;
-            mStickyData.put(position, cacheData);
-            if (data.definitelyHeight <= 0 || mStickyView.getMeasuredHeight() <= 0) {
-                bindData(cacheData);
+        }
+        if (mPrefetching) {
+            height = measurePrefetchHeight(cacheData);
+        } else {
+            bindData(cacheData);
+            height = getStickyItemHeight(data);
+        }
+        mHeightMemo.put(contentKey, viewType, cacheData.width, height);
+        return height;
+    }
+
+    /**
+     * 预取时在该viewType独立的视图上bind&measure，不改变缓存池的LRU顺序，下一帧可见的sticky view不需要重新绑定
+     */
+    @SuppressWarnings("unchecked")
+    private int measurePrefetchHeight(StickItemCacheData cacheData) {
+        StickyViewPool.Holder holder = mViewPool.obtainScratch(getStickyViewType(cacheData.baseStickyData));
+        if (holder == null) {
+            return 0;
+        }
+        View view = holder.view;
+        if (!holder.isBound(cacheData, cacheData.width)) {
+            Trace.beginSection("StickyDecoration#bindView");
+            try {
+                mFrameMetrics.bindViewCount++;
+                mStickyItem.bindView(view, cacheData.baseStickyData);
+                // 同一个视图依次绑定不同的数据，总是重新measure
+                view.forceLayout();
+                measureLayout(view, cacheData.width);
+                holder.bind(cacheData, cacheData.width);
+            } finally {
+                Trace.endSection();
             }
-            cacheData.height = getStickyItemHeight(data);
-            outRect.set(0, cacheData.height, 0, 0);
+        }
+        return view.getMeasuredHeight();
+    }
+
+    /**
+     * 预取纯文本sticky view：只在后台线程排版文本，不在主线程bind & measure，
+     * 滑入屏幕时{@link #resolveStickyHeight(StickItemCacheData)}直接使用排版得到的高度
+     */
+    @SuppressWarnings("unchecked")
+    private void precomputeTextLayout(int position, int width) {
+        if (mStickyData.get(position) != null) return;
+        if (mSectionIndex.isProbed(position) && !mSectionIndex.isSectionStart(position)) return;
+        BaseStickyData data;
+        if (mAppliedSnapshot != null) {
+            // 使用快照时主线程不再读取业务的可变列表，快照中已经有高度时不需要排版
+            if (mAppliedSnapshot.getHeight(position) > 0) return;
+            data = mAppliedSnapshot.getData(position);
         } else {
-            StickItemCacheData cacheData = mStickyData.get(position);
-            outRect.set(0, cacheData.height, 0, 0);
+            mFrameMetrics.obtainInsideDataCount++;
+            data = mStickyItem.obtainInsideDataByPosition(position);
+        }
+        if (data == null || data.definitelyHeight > 0
+                || mHeightMemo.get(data.getContentKey(), getStickyViewType(data), width) > 0) {
+            return;
         }
+        mTextItem.precompute(data, width);
     }
 
     /**
      * 拦截RecyclerView的点击事件，防止sticky view 区域会响应点击事件
      */
     private void interceptStickyTouchEvent(RecyclerView parent, int bottom) {
-        if (parent instanceof MyRecyclerView) {
-            ((MyRecyclerView) parent).interceptTouchEvent(new Rect(0, 0, parent.getWidth(), bottom));
-        }
+        StickyViews.interceptTouchEvent(parent, bottom);
     }
 
     /**
@@ -236,24 +1471,64 @@ public class LinearStickyDecoration extends RecyclerView.ItemDecoration {
         if (data != null && data.definitelyHeight > 0) {
             return data.definitelyHeight;
         }
-        return mStickyView.getMeasuredHeight();
+        return mStickyView != null ? mStickyView.getMeasuredHeight() : 0;
     }
 
     /**
-     * 给StickyView绑定数据，刷新视图
+     * 从缓存池获取用于该数据的sticky view，未绑定过该数据时才会重新绑定数据、刷新视图
+     *
+     * @return 绑定了数据的sticky view
      */
-    private void bindData(StickItemCacheData data) {
+    @SuppressWarnings("unchecked")
+    private View bindData(StickItemCacheData data) {
         if (data == null || data.baseStickyData == null) {
-            return;
+            return null;
+        }
+        // 与上一次绑定的是同一个数据，并且视图没有被缓存池重新分配，直接使用
+        if (data == mBoundData && mBoundHolder != null && mBoundHolder.isBound(data, data.width)) {
+            mFrameMetrics.bindSkipCount++;
+            mStickyView = mBoundHolder.view;
+            mStickyViewHeight = mStickyView.getMeasuredHeight();
+            return mStickyView;
+        }
+        int viewType = DEFAULT_STICKY_VIEW_TYPE;
+        if (mStickyItem instanceof IMultiTypeStickyItem) {
+            viewType = ((IMultiTypeStickyItem) mStickyItem).getStickyViewType(data.baseStickyData);
+        }
+        StickyViewPool.Holder holder = mViewPool.obtain(viewType, data);
+        if (holder == null) {
+            return null;
         }
-        // 先更新数据源
-        mStickyItem.bindView(mStickyView, data.baseStickyData);
-        // 对于definitelyHeight>0的case，不做measure和layout，以减少耗时
-        if (mStickyView.getMeasuredHeight() <= 0
-                || data.baseStickyData.definitelyHeight <= 0) {
-            measureLayout(data.width);
+        mStickyView = holder.view;
+        mBoundData = data;
+        mBoundHolder = holder;
+        if (holder.isBound(data, data.width)) {
+            mFrameMetrics.bindSkipCount++;
+        } else {
+            Trace.beginSection("StickyDecoration#bindView");
+            try {
+                // 先更新数据源
+                mFrameMetrics.bindViewCount++;
+                mStickyItem.bindView(mStickyView, data.baseStickyData);
+                if (mHoverRenderer != null) {
+                    mHoverRenderer.invalidate(data);
+                }
+                // 对于definitelyHeight>0的case，不做measure和layout，以减少耗时
+                if (mStickyView.getMeasuredHeight() <= 0
+                        || data.baseStickyData.definitelyHeight <= 0
+                        || holder.boundWidth != data.width) {
+                    if (holder.boundWidth != data.width) {
+                        mStickyView.forceLayout();
+                    }
+                    measureLayout(mStickyView, data.width);
+                }
+                holder.bind(data, data.width);
+            } finally {
+                Trace.endSection();
+            }
         }
         mStickyViewHeight = mStickyView.getMeasuredHeight();
+        return mStickyView;
     }
 
     /**
@@ -261,43 +1536,46 @@ public class LinearStickyDecoration extends RecyclerView.ItemDecoration {
      *
      * @param parentWidth
      */
-    private void measureLayout(int parentWidth) {
-        if (mStickyView == null || !mStickyView.isLayoutRequested()) return;
-
-        int widthSpec = View.MeasureSpec.makeMeasureSpec(parentWidth, View.MeasureSpec.EXACTLY);
-        int heightSpec;
-
-        ViewGroup.LayoutParams layoutParams = mStickyView.getLayoutParams();
-        if (layoutParams != null && layoutParams.height > 0) {
-            heightSpec = View.MeasureSpec.makeMeasureSpec(layoutParams.height, View.MeasureSpec.EXACTLY);
-        } else {
-            heightSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
-        }
-        mStickyView.measure(widthSpec, heightSpec);
-        mStickyView.layout(0, 0, mStickyView.getMeasuredWidth(), mStickyView.getMeasuredHeight());
+    private void measureLayout(View stickyView, int parentWidth) {
+        if (stickyView == null || !stickyView.isLayoutRequested()) return;
+        mFrameMetrics.measureCount++;
+        StickyViews.measureLayout(stickyView, parentWidth);
     }
 
     /**
-     * 得到下一个sticky View
+     * 绘制内嵌的sticky view，开启快照模式时优先绘制缓存的位图，超过快照上限的视图直接绘制
      *
-     * @param parent
-     * @return
-     */
-    private int getNextStickyViewTop(RecyclerView parent) {
-        int num = 0;
-        View nextStickyView = null;
-        StickItemCacheData nextStickyData = null;
-        for (int m = 0, size = parent.getChildCount(); m < size; m++) {
-            View view = parent.getChildAt(m);
-            StickItemCacheData data = mStickyData.get(parent.getChildLayoutPosition(view));
-            if (data != null) {
-                nextStickyView = view;
-                nextStickyData = data;
-                num++;
+     * @param top sticky view的顶部位置
+     */
+    private void drawInsideStickyView(Canvas canvas, StickItemCacheData data, int top) {
+        boolean bound = false;
+        if (mSnapshotCache != null) {
+            Bitmap snapshot = mSnapshotCache.get(data);
+            if (snapshot == null) {
+                View view = bindData(data);
+                bound = true;
+                snapshot = view != null ? mSnapshotCache.snapshot(data, view) : null;
+            }
+            if (snapshot != null) {
+                canvas.drawBitmap(snapshot, 0, top, null);
+                return;
             }
-            if (num == 2) break;
         }
-        return num >= 2 ? nextStickyView.getTop() - nextStickyData.height : -1;
+        if (!bound) {
+            bindData(data);
+        }
+        drawStickyView(canvas, -top);
+    }
+
+    /**
+     * 绘制悬停视图，开启绘制缓存时，section没有变化的帧只需要更新偏移
+     */
+    private void drawHoverStickyView(Canvas canvas, StickItemCacheData data, int transY) {
+        if (mStickyView == null) return;
+        if (mHoverRenderer != null && mHoverRenderer.draw(canvas, mStickyView, data, mPreStickyPosition, transY)) {
+            return;
+        }
+        drawStickyView(canvas, transY);
     }
 
     /**
@@ -313,6 +1591,70 @@ public class LinearStickyDecoration extends RecyclerView.ItemDecoration {
         canvas.restoreToCount(saveCount);
     }
 
+    /**
+     * 本帧的子view，section起点之上的sticky view高度以及数据从缓存中读取
+     */
+    private class ChildRows implements StickyLayoutEngine.StickyRows {
+        private RecyclerView mParent;
+        /**
+         * 最近一次查找的行，引擎对同一行的多次调用只查找一次子view、position以及缓存
+         */
+        private int mRow;
+        private View mChild;
+        private int mPosition;
+        private StickItemCacheData mCacheData;
+
+        void attach(RecyclerView parent) {
+            mParent = parent;
+            mRow = -1;
+        }
+
+        void detach() {
+            mParent = null;
+            mChild = null;
+            mCacheData = null;
+            mRow = -1;
+        }
+
+        private void moveTo(int row) {
+            if (row == mRow) return;
+            mRow = row;
+            mChild = mParent.getChildAt(row);
+            mPosition = mParent.getChildLayoutPosition(mChild);
+            mCacheData = mStickyData.get(mPosition);
+        }
+
+        @Override
+        public int getRowCount() {
+            return mParent.getChildCount();
+        }
+
+        @Override
+        public int getPosition(int row) {
+            moveTo(row);
+            return mPosition;
+        }
+
+        @Override
+        public int getTop(int row) {
+            moveTo(row);
+            return mChild.getTop();
+        }
+
+        @Override
+        public int getStickyHeight(int row) {
+            moveTo(row);
+            // baseStickyData 不为空，说明在该view之上需要绘制分隔视图(高度为0时也需要，作为悬停视图的起点)
+            return mCacheData != null && mCacheData.baseStickyData != null
+                    ? mCacheData.height : StickyLayoutEngine.NO_STICKY;
+        }
+
+        @Override
+        public Object getStickyData(int row) {
+            moveTo(row);
+            return mCacheData;
+        }
+    }
 
     private static class StickItemCacheData {
         /**
@@ -329,6 +1671,16 @@ public class LinearStickyDecoration extends RecyclerView.ItemDecoration {
         BaseStickyData baseStickyData;
     }
 
+    /**
+     * 每帧耗时统计的回调
+     */
+    public interface OnFrameMetricsListener {
+        /**
+         * @param metrics 本帧的统计数据，回调之后会被重置，不要持有
+         */
+        void onFrameMetrics(StickyFrameMetrics metrics);
+    }
+
     /**
      * 该接口定义了sticky view所需的所有数据，包括创建视图、刷新视图、获取sticky view所需数据结构
      */
@@ -357,14 +1709,67 @@ public class LinearStickyDecoration extends RecyclerView.ItemDecoration {
         /**
          * 获取在顶部悬停的sticky view的数据结构
          * 根据当前position，判断该position之上是否有悬停的sticky view，有则返回悬停的sticky view的数据结构，不需要悬停则返回null
+         * <p>
+         * 直接实现该接口时默认通过该方法获取悬停数据；继承{@link SimpleStickyItem}时默认使用section索引查找，
+         * 只有在{@link #setUseSectionIndex(boolean)}设置为false之后才会被调用
          */
         StickData obtainHoverData(int headPosition);
     }
 
+    /**
+     * 支持多种sticky view类型的接口，sticky view按照viewType分别创建、缓存
+     * <p>
+     * 实现该接口时，{@link IStickyItem#createStickyView()}不会被调用
+     */
+    public interface IMultiTypeStickyItem<StickyView extends View, StickData extends BaseStickyData>
+            extends IStickyItem<StickyView, StickData> {
+        /**
+         * 获取数据对应的sticky view类型，只能依赖数据本身；{@link StickyDiffSession#prepare}时会在后台线程调用
+         */
+        int getStickyViewType(StickData data);
+
+        /**
+         * 创建一个该类型的StickyView视图
+         */
+        StickyView createStickyView(int viewType);
+    }
+
+    /**
+     * 使用内部section索引查找悬停视图时，业务可以继承该类，不需要实现{@link IStickyItem#obtainHoverData(int)}
+     */
+    public static abstract class SimpleStickyItem<StickyView extends View, StickData extends BaseStickyData>
+            implements IStickyItem<StickyView, StickData> {
+        @Override
+        public StickData obtainHoverData(int headPosition) {
+            return null;
+        }
+    }
+
     /**
      * 该类定义了悬停视图的数据结构，自定义的数据结构需要继承自该类
      */
     public static class BaseStickyData {
         int definitelyHeight = 0;
+
+        /**
+         * 设置确定的sticky view高度，大于0时不再measure sticky view来获取高度
+         */
+        public void setDefinitelyHeight(int definitelyHeight) {
+            this.definitelyHeight = definitelyHeight;
+        }
+
+        public int getDefinitelyHeight() {
+            return definitelyHeight;
+        }
+
+        /**
+         * 返回能够唯一标识sticky view内容的key(需要正确实现equals&hashCode，如展示的文本)，
+         * 内容相同的sticky view在宽度相同时高度也相同，measure的高度会按照该key缓存
+         *
+         * @return 默认为null，不缓存高度
+         */
+        public Object getContentKey() {
+            return null;
+        }
     }
 }
@@ -14,8 +14,16 @@ import androidx.recyclerview.widget.RecyclerView;
  * Created by cb on 2019/12/26.
  */
 public class MyRecyclerView extends RecyclerView {
-    private Rect mInterceptRect;
+    private final Rect mInterceptRect = new Rect();
     private boolean isIntercept;
+    /**
+     * 绑定的快速滑动条，滑块可能位于悬停视图的区域内，需要优先响应
+     */
+    private StickyFastScroller mFastScroller;
+    /**
+     * 开启了滑动偏移索引的sticky decoration，用于计算精确的滚动条
+     */
+    private LinearStickyDecoration mScrollOffsetSource;
 
     public MyRecyclerView(@NonNull Context context) {
         super(context);
@@ -30,12 +38,66 @@ public class MyRecyclerView extends RecyclerView {
     }
 
     public void interceptTouchEvent(Rect rect) {
-        mInterceptRect = rect;
+        if (rect == null) {
+            mInterceptRect.setEmpty();
+        } else {
+            mInterceptRect.set(rect);
+        }
+    }
+
+    /**
+     * 设置拦截点击事件的区域，不会持有传入的对象，可以在每帧绘制时调用
+     */
+    public void interceptTouchEvent(int left, int top, int right, int bottom) {
+        mInterceptRect.set(left, top, right, bottom);
+    }
+
+    void setFastScroller(StickyFastScroller fastScroller) {
+        mFastScroller = fastScroller;
+    }
+
+    StickyFastScroller getFastScroller() {
+        return mFastScroller;
+    }
+
+    void setScrollOffsetSource(LinearStickyDecoration scrollOffsetSource) {
+        mScrollOffsetSource = scrollOffsetSource;
+    }
+
+    @Override
+    public int computeVerticalScrollOffset() {
+        if (mScrollOffsetSource != null) {
+            int offset = mScrollOffsetSource.computeVerticalScrollOffset(this);
+            if (offset >= 0) return offset;
+        }
+        return super.computeVerticalScrollOffset();
+    }
+
+    @Override
+    public int computeVerticalScrollRange() {
+        if (mScrollOffsetSource != null) {
+            int range = mScrollOffsetSource.computeVerticalScrollRange(this);
+            if (range >= 0) return range;
+        }
+        return super.computeVerticalScrollRange();
+    }
+
+    @Override
+    public int computeVerticalScrollExtent() {
+        // 与偏移索引的range保持同一单位(像素)
+        if (mScrollOffsetSource != null && mScrollOffsetSource.isOffsetIndexAvailable(this)) {
+            return getHeight();
+        }
+        return super.computeVerticalScrollExtent();
     }
 
     @Override
     public boolean onInterceptTouchEvent(MotionEvent e) {
-        if (mInterceptRect != null && mInterceptRect.contains((int) (e.getX() + 0.5f), (int) (e.getY() + 0.5f))) {
+        if (mFastScroller != null && mFastScroller.isInTouchArea(e.getX(), e.getY())) {
+            isIntercept = false;
+            return super.onInterceptTouchEvent(e);
+        }
+        if (mInterceptRect.contains((int) (e.getX() + 0.5f), (int) (e.getY() + 0.5f))) {
             isIntercept = true;
             return true;
         }
@@ -0,0 +1,570 @@
+package com.cb.sticky;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.cb.sticky.engine.SectionIndex;
+import com.cb.sticky.engine.StickyCache;
+
+import java.util.Arrays;
+
+/**
+ * 多级嵌套的顶部悬停效果(如：分类 -> 子分类 -> 日期)
+ * <p>
+ * ①每一级都有独立的section索引、sticky数据缓存以及悬停位置，各级悬停视图自上而下依次堆叠
+ * ②同一个position之上可以同时嵌入多级sticky view，按照级别自上而下排列
+ * ③下一个同级或者更高级别的sticky view到达时，只上推该级别(以及跟随其后的更低级别)的悬停视图
+ * ④每帧只遍历一次子view，各级悬停视图的查找均为二分查找，耗时为O(级数 · log n)；
+ * 上推某一级悬停视图的边界(同级或者更高级别的起点)保存在合并之后的边界索引中，每级只需要查找一次
+ * ⑤首次绘制以及全量刷新之后，各级索引在主线程空闲时逐级分批建立({@link SectionIndexBuilder})；
+ * 建立完成之前，未探测的区间逐个询问数据接口，上推的边界只在可见的position中查找
+ */
+public class NestedStickyDecoration extends RecyclerView.ItemDecoration {
+    private final RecyclerView.Adapter mAdapter;
+    private final ILevelStickyItem mStickyItem;
+    private final int mLevelCount;
+    private final SectionIndex[] mSectionIndexes;
+    /**
+     * 第level个为0~level级所有section起点合并之后的索引，第0级与{@link #mSectionIndexes}相同
+     */
+    private final SectionIndex[] mBoundaryIndexes;
+    private final SectionIndex.SectionProber[] mBoundaryProbers;
+    private final StickyCache<LevelCacheData>[] mStickyData;
+    private final SectionIndex.SectionProber[] mSectionProbers;
+    private final StickyViewPool mViewPool;
+    /**
+     * 各级悬停视图的数据以及本帧的顶部位置；悬停数据不受缓存窗口的淘汰影响，
+     * 在很长的section中滑动时，悬停的起点远在窗口之外也不需要重新获取、绑定
+     */
+    private final LevelCacheData[] mHoverData;
+    private final int[] mHoverTops;
+    /**
+     * 本帧可见子view的position以及上下边界，按照position递增
+     */
+    private int[] mChildPositions = new int[16];
+    private int[] mChildTops = new int[16];
+    private int[] mChildBottoms = new int[16];
+    private int mChildCount;
+    /**
+     * 合并边界索引时复用的数组
+     */
+    private int[] mMergedStarts = new int[16];
+    /**
+     * 在主线程空闲时逐级分批建立section索引
+     */
+    private final SectionIndexBuilder mIndexBuilder = new SectionIndexBuilder(new SectionIndexBuilder.Target() {
+        @Override
+        public boolean probeSectionIndex(int count) {
+            // 索引已经建立完成或者失效，失效的索引在下一次绘制时重新安排
+            if (mAdapter == null) {
+                return true;
+            }
+            for (int level = 0; level < mLevelCount; level++) {
+                if (mSectionIndexes[level].isBuilding()) {
+                    boolean finished = mSectionIndexes[level].probe(count, mSectionProbers[level]);
+                    if (finished) {
+                        mergeBoundaryIndexes(mAdapter.getItemCount());
+                    }
+                    return finished && level == mLevelCount - 1;
+                }
+            }
+            return true;
+        }
+    });
+
+    /**
+     * 构造函数
+     *
+     * @param adapter    需要该参数监听数据刷新的变化，以清理缓存的脏数据
+     * @param stickyItem 获取各级sticky view数据必要的接口
+     */
+    @SuppressWarnings("unchecked")
+    public NestedStickyDecoration(final RecyclerView.Adapter adapter, ILevelStickyItem stickyItem) {
+        mAdapter = adapter;
+        mStickyItem = stickyItem;
+        // 没有数据接口时不展示任何sticky view
+        mLevelCount = stickyItem != null ? stickyItem.getLevelCount() : 0;
+        mSectionIndexes = new SectionIndex[mLevelCount];
+        mBoundaryIndexes = new SectionIndex[mLevelCount];
+        mBoundaryProbers = new SectionIndex.SectionProber[mLevelCount];
+        mStickyData = new StickyCache[mLevelCount];
+        mSectionProbers = new SectionIndex.SectionProber[mLevelCount];
+        mHoverData = new LevelCacheData[mLevelCount];
+        mHoverTops = new int[mLevelCount];
+        for (int level = 0; level < mLevelCount; level++) {
+            final int currentLevel = level;
+            mSectionIndexes[level] = new SectionIndex();
+            mStickyData[level] = new StickyCache<>();
+            mSectionProbers[level] = new SectionIndex.SectionProber() {
+                @Override
+                public boolean isSectionStart(int position) {
+                    // 重新探测的边界position可能已经超出了列表的范围
+                    if (adapter == null || position >= adapter.getItemCount()) {
+                        return false;
+                    }
+                    return mStickyItem.obtainInsideDataByPosition(position, currentLevel) != null;
+                }
+            };
+            if (level == 0) {
+                mBoundaryIndexes[0] = mSectionIndexes[0];
+                continue;
+            }
+            mBoundaryIndexes[level] = new SectionIndex();
+            // 各级索引先于边界索引更新，直接从上一级的边界索引以及本级索引中读取，不需要再询问业务方
+            mBoundaryProbers[level] = new SectionIndex.SectionProber() {
+                @Override
+                public boolean isSectionStart(int position) {
+                    return mBoundaryIndexes[currentLevel - 1].isSectionStart(position)
+                            || mSectionIndexes[currentLevel].isSectionStart(position);
+                }
+            };
+        }
+        mViewPool = new StickyViewPool(new StickyViewPool.ViewFactory() {
+            @Override
+            public View createView(int viewType) {
+                return mStickyItem.createStickyView(viewType);
+            }
+        });
+        if (adapter == null) {
+            return;
+        }
+        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                clearOldData();
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount) {
+                for (int level = 0; level < mLevelCount; level++) {
+                    SectionRangeUpdater.changeRange(mStickyData[level], mSectionIndexes[level], mSectionProbers[level],
+                            positionStart, itemCount);
+                }
+                for (int level = 1; level < mLevelCount; level++) {
+                    mBoundaryIndexes[level].changeRange(positionStart, itemCount, mBoundaryProbers[level]);
+                }
+                clearHoverData();
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount, @Nullable Object payload) {
+                onItemRangeChanged(positionStart, itemCount);
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                for (int level = 0; level < mLevelCount; level++) {
+                    SectionRangeUpdater.insertRange(mStickyData[level], mSectionIndexes[level], mSectionProbers[level],
+                            positionStart, itemCount);
+                }
+                for (int level = 1; level < mLevelCount; level++) {
+                    mBoundaryIndexes[level].insertRange(positionStart, itemCount, mBoundaryProbers[level]);
+                }
+                clearHoverData();
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                for (int level = 0; level < mLevelCount; level++) {
+                    SectionRangeUpdater.removeRange(mStickyData[level], mSectionIndexes[level], mSectionProbers[level],
+                            positionStart, itemCount);
+                }
+                for (int level = 1; level < mLevelCount; level++) {
+                    mBoundaryIndexes[level].removeRange(positionStart, itemCount, mBoundaryProbers[level]);
+                }
+                clearHoverData();
+            }
+
+            @Override
+            public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+                for (int level = 0; level < mLevelCount; level++) {
+                    SectionRangeUpdater.moveRange(mStickyData[level], mSectionIndexes[level], mSectionProbers[level],
+                            fromPosition, toPosition, itemCount);
+                }
+                for (int level = 1; level < mLevelCount; level++) {
+                    mBoundaryIndexes[level].moveRange(fromPosition, toPosition, itemCount, mBoundaryProbers[level]);
+                }
+                clearHoverData();
+            }
+        });
+    }
+
+    private void clearOldData() {
+        for (int level = 0; level < mLevelCount; level++) {
+            mStickyData[level].clear();
+            mSectionIndexes[level].invalidate();
+            mBoundaryIndexes[level].invalidate();
+        }
+        mViewPool.unbindAll();
+        clearHoverData();
+    }
+
+    private void clearHoverData() {
+        Arrays.fill(mHoverData, null);
+    }
+
+    @Override
+    public void getItemOffsets(Rect outRect, View view, RecyclerView parent, RecyclerView.State state) {
+        if (mStickyItem == null || parent.getAdapter() == null) return;
+        int position = parent.getChildLayoutPosition(view);
+        if (position == RecyclerView.NO_POSITION) return;
+        ensureSectionIndexes(parent);
+        outRect.set(0, getInsideTotalHeight(position, parent.getWidth()), 0, 0);
+    }
+
+    @Override
+    public void onDrawOver(Canvas c, RecyclerView parent, RecyclerView.State state) {
+        if (mStickyItem == null || parent.getAdapter() == null || parent.getAdapter().getItemCount() <= 0) return;
+        ensureSectionIndexes(parent);
+        int width = parent.getWidth();
+        collectChildren(parent);
+        if (mChildCount == 0) {
+            StickyViews.interceptTouchEvent(parent, 0);
+            return;
+        }
+        // 第一阶段：绘制所有内嵌的sticky view，同一个position之上的多级sticky view自上而下排列
+        int insideCount = 0;
+        for (int i = 0; i < mChildCount; i++) {
+            int position = mChildPositions[i];
+            int top = mChildTops[i] - getInsideTotalHeight(position, width);
+            for (int level = 0; level < mLevelCount; level++) {
+                LevelCacheData data = obtainInsideCacheData(position, level, width);
+                if (data != null) {
+                    drawStickyView(c, data, top);
+                    top += data.height;
+                    insideCount++;
+                }
+            }
+        }
+        // 可见的sticky view以及各级悬停视图都需要各自的视图，否则按照LRU复用时每帧都会重新绑定
+        mViewPool.ensureDefaultMaxViews(insideCount + mLevelCount);
+        // 第二阶段：自上而下计算各级悬停视图的位置
+        int base = 0;
+        int higherHeadPosition = RecyclerView.NO_POSITION;
+        for (int level = 0; level < mLevelCount; level++) {
+            LevelCacheData lastHoverData = mHoverData[level];
+            mHoverData[level] = null;
+            // 位于该级悬停区域之下的首个子view，决定了该级悬停的sticky view
+            int anchorPosition = findAnchorPosition(base);
+            // 首个不早于anchor的同级或者更高级别的section起点，其内嵌的sticky view会上推当前级别的悬停视图
+            int boundary = nextBoundary(anchorPosition - 1, level);
+            int headPosition;
+            if (boundary == anchorPosition && getStackTop(boundary, width) > base) {
+                // anchor之上的sticky view还完全在悬停区域之下，悬停的是上一个section
+                headPosition = findSectionStart(anchorPosition - 1, level);
+            } else {
+                headPosition = findSectionStart(anchorPosition, level);
+                if (boundary == anchorPosition) {
+                    boundary = nextBoundary(anchorPosition, level);
+                }
+            }
+            // 低级别的sticky view只能悬停在其所属的高级别section之内
+            if (headPosition == SectionIndex.NO_POSITION || headPosition < higherHeadPosition) {
+                continue;
+            }
+            LevelCacheData data = lastHoverData != null && lastHoverData.position == headPosition
+                    && lastHoverData.width == width
+                    ? lastHoverData : obtainInsideCacheData(headPosition, level, width);
+            if (data == null) {
+                continue;
+            }
+            int top = base;
+            int nextTop = boundary == SectionIndex.NO_POSITION ? Integer.MAX_VALUE : getStackTop(boundary, width);
+            if (nextTop < base + data.height) {
+                top = nextTop - data.height;
+            }
+            mHoverData[level] = data;
+            mHoverTops[level] = top;
+            base = top + data.height;
+            higherHeadPosition = headPosition;
+        }
+        // 自下而上绘制，高级别的悬停视图覆盖在被上推的低级别视图之上
+        for (int level = mLevelCount - 1; level >= 0; level--) {
+            if (mHoverData[level] != null) {
+                drawStickyView(c, mHoverData[level], mHoverTops[level]);
+            }
+        }
+        StickyViews.interceptTouchEvent(parent, Math.max(base, 0));
+        for (int level = 0; level < mLevelCount; level++) {
+            mStickyData[level].trimToWindow(mChildPositions[0], mChildPositions[mChildCount - 1]);
+        }
+    }
+
+    /**
+     * 遍历一次子view，记录position以及上下边界
+     */
+    private void collectChildren(RecyclerView parent) {
+        mChildCount = 0;
+        for (int i = 0, size = parent.getChildCount(); i < size; i++) {
+            View child = parent.getChildAt(i);
+            int position = parent.getChildLayoutPosition(child);
+            if (position == RecyclerView.NO_POSITION) continue;
+            if (mChildCount == mChildPositions.length) {
+                int newCapacity = mChildCount * 2;
+                mChildPositions = Arrays.copyOf(mChildPositions, newCapacity);
+                mChildTops = Arrays.copyOf(mChildTops, newCapacity);
+                mChildBottoms = Arrays.copyOf(mChildBottoms, newCapacity);
+            }
+            mChildPositions[mChildCount] = position;
+            mChildTops[mChildCount] = child.getTop();
+            mChildBottoms[mChildCount] = child.getBottom();
+            mChildCount++;
+        }
+    }
+
+    /**
+     * 二分查找底部在y之下的首个子view的position
+     */
+    private int findAnchorPosition(int y) {
+        int lo = 0;
+        int hi = mChildCount - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (mChildBottoms[mid] > y) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return mChildPositions[lo];
+    }
+
+    /**
+     * 获取大于position的首个同级或者更高级别的section起点，边界索引建立完成时为一次二分查找；
+     * 建立完成之前只在可见的position中逐个查找，不可见的边界不会上推悬停视图
+     *
+     * @return 没有则返回{@link SectionIndex#NO_POSITION}
+     */
+    private int nextBoundary(int position, int level) {
+        if (mBoundaryIndexes[level].isBuilt()) {
+            return mBoundaryIndexes[level].next(position);
+        }
+        int start = Arrays.binarySearch(mChildPositions, 0, mChildCount, position + 1);
+        for (int i = start >= 0 ? start : ~start; i < mChildCount; i++) {
+            int p = mChildPositions[i];
+            for (int l = 0; l <= level; l++) {
+                if (isSectionStart(p, l)) {
+                    return p;
+                }
+            }
+        }
+        return SectionIndex.NO_POSITION;
+    }
+
+    /**
+     * 获取position所属的该级别section的起点；索引还没有探测到position时，从position向前逐个探测，直到遇到起点或者已探测的区间
+     *
+     * @return 在首个section之前则返回{@link SectionIndex#NO_POSITION}
+     */
+    private int findSectionStart(int position, int level) {
+        SectionIndex index = mSectionIndexes[level];
+        if (index.isProbed(position)) {
+            return index.floor(position);
+        }
+        int probedCount = index.getProbedCount();
+        for (int p = position; p >= probedCount; p--) {
+            if (mSectionProbers[level].isSectionStart(p)) {
+                return p;
+            }
+        }
+        return probedCount > 0 ? index.floor(probedCount - 1) : SectionIndex.NO_POSITION;
+    }
+
+    private boolean isSectionStart(int position, int level) {
+        if (mSectionIndexes[level].isProbed(position)) {
+            return mSectionIndexes[level].isSectionStart(position);
+        }
+        return mStickyData[level].get(position) != null || mSectionProbers[level].isSectionStart(position);
+    }
+
+    /**
+     * 获取position之上内嵌的最顶部的sticky view的top
+     *
+     * @return position不可见时返回Integer.MAX_VALUE
+     */
+    private int getStackTop(int position, int width) {
+        int index = Arrays.binarySearch(mChildPositions, 0, mChildCount, position);
+        if (index < 0) {
+            return Integer.MAX_VALUE;
+        }
+        return mChildTops[index] - getInsideTotalHeight(position, width);
+    }
+
+    /**
+     * position之上嵌入的各级sticky view的总高度
+     */
+    private int getInsideTotalHeight(int position, int width) {
+        int height = 0;
+        for (int level = 0; level < mLevelCount; level++) {
+            LevelCacheData data = obtainInsideCacheData(position, level, width);
+            if (data != null) {
+                height += data.height;
+            }
+        }
+        return height;
+    }
+
+    /**
+     * 失效的索引重新开始建立，在主线程空闲时分批探测，不在帧内遍历所有position
+     */
+    private void ensureSectionIndexes(RecyclerView parent) {
+        int itemCount = parent.getAdapter().getItemCount();
+        boolean building = false;
+        for (int level = 0; level < mLevelCount; level++) {
+            SectionIndex index = mSectionIndexes[level];
+            if (!index.isBuilt()) {
+                if (!index.isBuilding()) {
+                    index.begin(itemCount);
+                }
+                building |= index.isBuilding();
+            }
+        }
+        mergeBoundaryIndexes(itemCount);
+        if (building) {
+            mIndexBuilder.schedule();
+        }
+    }
+
+    /**
+     * 第level个边界索引依赖0~level级的索引，逐级合并已经可以合并的边界索引
+     */
+    private void mergeBoundaryIndexes(int itemCount) {
+        for (int level = 1; level < mLevelCount; level++) {
+            if (mBoundaryIndexes[level].isBuilt()) continue;
+            if (!mBoundaryIndexes[level - 1].isBuilt() || !mSectionIndexes[level].isBuilt()) return;
+            mergeBoundaryIndex(level, itemCount);
+        }
+    }
+
+    /**
+     * 按照有序数组合并上一级的边界索引以及本级的索引，不需要逐个探测position
+     */
+    private void mergeBoundaryIndex(int level, int itemCount) {
+        SectionIndex higher = mBoundaryIndexes[level - 1];
+        SectionIndex current = mSectionIndexes[level];
+        int higherSize = higher.size();
+        int currentSize = current.size();
+        if (mMergedStarts.length < higherSize + currentSize) {
+            mMergedStarts = new int[higherSize + currentSize];
+        }
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < higherSize || j < currentSize) {
+            int start;
+            if (j >= currentSize || (i < higherSize && higher.get(i) <= current.get(j))) {
+                start = higher.get(i++);
+                if (j < currentSize && current.get(j) == start) {
+                    j++;
+                }
+            } else {
+                start = current.get(j++);
+            }
+            mMergedStarts[count++] = start;
+        }
+        mBoundaryIndexes[level].build(mMergedStarts, count, itemCount);
+    }
+
+    /**
+     * 获取position之上嵌入的某一级sticky view的数据，不需要嵌入则返回null
+     */
+    @SuppressWarnings("unchecked")
+    private LevelCacheData obtainInsideCacheData(int position, int level, int width) {
+        LevelCacheData cacheData = mStickyData[level].get(position);
+        if (cacheData != null) {
+            return cacheData;
+        }
+        if (mSectionIndexes[level].isProbed(position) && !mSectionIndexes[level].isSectionStart(position)) {
+            return null;
+        }
+        LinearStickyDecoration.BaseStickyData data = mStickyItem.obtainInsideDataByPosition(position, level);
+        if (data == null) {
+            return null;
+        }
+        cacheData = new LevelCacheData();
+        cacheData.position = position;
+        cacheData.level = level;
+        cacheData.width = width;
+        cacheData.baseStickyData = data;
+        if (data.definitelyHeight > 0) {
+            cacheData.height = data.definitelyHeight;
+        } else {
+            View view = bindData(cacheData);
+            cacheData.height = view != null ? view.getMeasuredHeight() : 0;
+        }
+        mStickyData[level].put(position, cacheData);
+        return cacheData;
+    }
+
+    /**
+     * 从缓存池获取该级别的sticky view，未绑定过该数据时才会重新绑定数据、刷新视图
+     */
+    @SuppressWarnings("unchecked")
+    private View bindData(LevelCacheData data) {
+        StickyViewPool.Holder holder = mViewPool.obtain(data.level, data);
+        if (holder == null) {
+            return null;
+        }
+        View view = holder.view;
+        if (!holder.isBound(data, data.width)) {
+            mStickyItem.bindView(view, data.baseStickyData, data.level);
+            if (holder.boundWidth != data.width) {
+                view.forceLayout();
+            }
+            if (view.isLayoutRequested() || view.getMeasuredHeight() <= 0) {
+                StickyViews.measureLayout(view, data.width);
+            }
+            holder.bind(data, data.width);
+        }
+        return view;
+    }
+
+    private void drawStickyView(Canvas canvas, LevelCacheData data, int top) {
+        View view = bindData(data);
+        if (view == null) return;
+        int saveCount = canvas.save();
+        canvas.translate(0, top);
+        view.draw(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+
+    private static class LevelCacheData {
+        /**
+         * 获取数据时的position，只用于判断悬停视图是否仍为同一个section；局部刷新时悬停数据会被清空
+         */
+        int position;
+        int level;
+        int height;
+        int width;
+        LinearStickyDecoration.BaseStickyData baseStickyData;
+    }
+
+    /**
+     * 多级sticky view所需的数据接口，级别从0开始，数值越小级别越高
+     */
+    public interface ILevelStickyItem<StickyView extends View, StickData extends LinearStickyDecoration.BaseStickyData> {
+        /**
+         * sticky view的级数
+         */
+        int getLevelCount();
+
+        /**
+         * 创建一个该级别的StickyView视图
+         */
+        StickyView createStickyView(int level);
+
+        /**
+         * 用数据更新视图
+         */
+        void bindView(StickyView view, StickData data, int level);
+
+        /**
+         * 根据当前position，判断该position之上是否需要嵌入该级别的sticky view，需要则返回相应数据结构，不需要则必须返回null
+         */
+        StickData obtainInsideDataByPosition(int position, int level);
+    }
+}
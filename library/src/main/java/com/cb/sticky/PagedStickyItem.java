@@ -0,0 +1,235 @@
+package com.cb.sticky;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
+
+/**
+ * 异步、分页获取sticky数据的{@link LinearStickyDecoration.IStickyItem}，适用于Paging等数据需要从磁盘、数据库分页加载的场景
+ * <p>
+ * ①布局、绘制时只读取已经加载的页，未加载的页通过{@link #loadPage(int, int, PageCallback)}异步请求，不会在帧内做I/O
+ * ②页加载完成之前，该页内的position使用{@link #createPlaceholderData(int)}，默认为null(不绘制)
+ * ③加载结果切换到主线程之后，decoration只失效该页对应的缓存，该页在可见区域附近时才重新布局
+ * ④已加载的页按照LRU缓存，最多{@link #setMaxPages(int)}页；adapter刷新时，受影响的页会被丢弃并重新加载
+ */
+public abstract class PagedStickyItem<StickyView extends View, StickData extends LinearStickyDecoration.BaseStickyData>
+        extends LinearStickyDecoration.SimpleStickyItem<StickyView, StickData> {
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int DEFAULT_MAX_PAGES = 16;
+
+    /**
+     * 分页加载的结果回调，可以在任意线程调用
+     */
+    public interface PageCallback<StickData> {
+        /**
+         * @param sectionData 该页中section起点的position(绝对position) -> sticky数据，没有section起点时传入空的SparseArray
+         */
+        void onPageLoaded(SparseArray<StickData> sectionData);
+    }
+
+    /**
+     * 页加载完成，通知decoration失效该区间
+     */
+    interface OnPageLoadedListener {
+        void onPageLoaded(int positionStart, int itemCount);
+    }
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final int mPageSize;
+    private int mMaxPages = DEFAULT_MAX_PAGES;
+    /**
+     * page -> 已加载的页
+     */
+    private final SparseArray<Page> mPages = new SparseArray<>();
+    /**
+     * page -> 正在加载的请求id，页被失效之后返回的结果会被丢弃
+     */
+    private final SparseIntArray mPendingRequests = new SparseIntArray();
+    private int mNextRequestId = 1;
+    private long mAccessCount;
+    private OnPageLoadedListener mOnPageLoadedListener;
+
+    public PagedStickyItem() {
+        this(DEFAULT_PAGE_SIZE);
+    }
+
+    public PagedStickyItem(int pageSize) {
+        mPageSize = Math.max(pageSize, 1);
+    }
+
+    /**
+     * 在主线程调用，实现方需要在后台线程加载[startPosition, startPosition + count)区间内的sticky数据，完成后回调callback
+     */
+    protected abstract void loadPage(int startPosition, int count, PageCallback<StickData> callback);
+
+    /**
+     * 该position所在的页还未加载时的占位数据
+     *
+     * @return 非null时该position按照section起点处理，使用占位数据绘制；默认为null，加载完成之前不绘制
+     */
+    public StickData createPlaceholderData(int position) {
+        return null;
+    }
+
+    /**
+     * 设置最多缓存的页数
+     */
+    public void setMaxPages(int maxPages) {
+        mMaxPages = Math.max(maxPages, 1);
+        trimPages();
+    }
+
+    /**
+     * 丢弃所有已加载以及正在加载的页，数据源整体变化(如切换列表)时调用
+     */
+    public void invalidatePages() {
+        mPages.clear();
+        mPendingRequests.clear();
+    }
+
+    /**
+     * 布局时调用，未加载的页会发起异步请求
+     */
+    @Override
+    public final StickData obtainInsideDataByPosition(int position) {
+        requestPage(position);
+        return peekInsideData(position);
+    }
+
+    void setOnPageLoadedListener(OnPageLoadedListener listener) {
+        mOnPageLoadedListener = listener;
+    }
+
+    /**
+     * 只读取已经加载的数据，不会发起请求，用于建立section索引
+     */
+    @SuppressWarnings("unchecked")
+    StickData peekInsideData(int position) {
+        Page page = mPages.get(position / mPageSize);
+        if (page == null) {
+            return createPlaceholderData(position);
+        }
+        page.lastUsed = ++mAccessCount;
+        return (StickData) page.data[position % mPageSize];
+    }
+
+    /**
+     * position所在的页未加载并且没有在加载中时，发起请求
+     */
+    void requestPage(int position) {
+        if (position < 0) return;
+        final int pageIndex = position / mPageSize;
+        if (mPages.indexOfKey(pageIndex) >= 0 || mPendingRequests.indexOfKey(pageIndex) >= 0) {
+            return;
+        }
+        final int requestId = mNextRequestId++;
+        mPendingRequests.put(pageIndex, requestId);
+        loadPage(pageIndex * mPageSize, mPageSize, new PageCallback<StickData>() {
+            @Override
+            public void onPageLoaded(final SparseArray<StickData> sectionData) {
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        deliverPage(pageIndex, requestId, sectionData);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 悬停视图需要position之前最近的section起点，而该起点可能位于还没有加载的页中：
+     * 从position所在的页开始向前请求，直到floorPosition所在的页(没有起点时直到第一页)，
+     * 最多向前请求一半的缓存页数，至少请求前一页
+     *
+     * @param floorPosition 已加载的数据中小于等于position的最大起点，没有则为-1
+     */
+    void requestPagesBefore(int position, int floorPosition) {
+        if (position < 0) return;
+        int page = position / mPageSize;
+        int floorPage = floorPosition >= 0 ? floorPosition / mPageSize : 0;
+        int lowestPage = Math.max(floorPage, page - Math.max(mMaxPages / 2, 1));
+        for (int i = page; i >= lowestPage; i--) {
+            requestPage(i * mPageSize);
+        }
+    }
+
+    /**
+     * 区间内的数据发生了变化，丢弃相关的页
+     */
+    void invalidateRange(int positionStart, int itemCount) {
+        int firstPage = positionStart / mPageSize;
+        int lastPage = (positionStart + Math.max(itemCount, 1) - 1) / mPageSize;
+        for (int page = firstPage; page <= lastPage; page++) {
+            mPages.remove(page);
+            mPendingRequests.delete(page);
+        }
+    }
+
+    /**
+     * position之后的数据发生了平移(插入、删除、移动)，丢弃之后所有的页
+     */
+    void invalidateFrom(int positionStart) {
+        int firstPage = Math.max(positionStart, 0) / mPageSize;
+        for (int i = mPages.size() - 1; i >= 0; i--) {
+            if (mPages.keyAt(i) >= firstPage) {
+                mPages.removeAt(i);
+            }
+        }
+        for (int i = mPendingRequests.size() - 1; i >= 0; i--) {
+            if (mPendingRequests.keyAt(i) >= firstPage) {
+                mPendingRequests.removeAt(i);
+            }
+        }
+    }
+
+    private void deliverPage(int pageIndex, int requestId, SparseArray<StickData> sectionData) {
+        // 请求之后该页被失效了，丢弃过期的结果
+        if (mPendingRequests.get(pageIndex) != requestId) {
+            return;
+        }
+        mPendingRequests.delete(pageIndex);
+        Page page = new Page(mPageSize);
+        int pageStart = pageIndex * mPageSize;
+        if (sectionData != null) {
+            for (int i = 0, size = sectionData.size(); i < size; i++) {
+                int offset = sectionData.keyAt(i) - pageStart;
+                if (offset >= 0 && offset < mPageSize) {
+                    page.data[offset] = sectionData.valueAt(i);
+                }
+            }
+        }
+        page.lastUsed = ++mAccessCount;
+        mPages.put(pageIndex, page);
+        trimPages();
+        if (mOnPageLoadedListener != null) {
+            mOnPageLoadedListener.onPageLoaded(pageStart, mPageSize);
+        }
+    }
+
+    /**
+     * 超过最大页数时，淘汰最久未使用的页
+     */
+    private void trimPages() {
+        while (mPages.size() > mMaxPages) {
+            int eldest = 0;
+            for (int i = 1, size = mPages.size(); i < size; i++) {
+                if (mPages.valueAt(i).lastUsed < mPages.valueAt(eldest).lastUsed) {
+                    eldest = i;
+                }
+            }
+            mPages.removeAt(eldest);
+        }
+    }
+
+    private static class Page {
+        final Object[] data;
+        long lastUsed;
+
+        Page(int pageSize) {
+            data = new Object[pageSize];
+        }
+    }
+}
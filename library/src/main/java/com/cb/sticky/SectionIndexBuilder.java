@@ -0,0 +1,64 @@
+package com.cb.sticky;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+
+/**
+ * section索引的分批建立
+ * <p>
+ * ①首次绘制以及全量刷新之后不在帧内遍历所有position，而是在主线程空闲时(两帧之间)逐批探测
+ * ②每次空闲时最多执行{@link #FRAME_BUDGET_MS}毫秒，未完成的部分在下一次空闲时继续
+ * ③建立完成之前，未探测的position仍然通过业务的数据接口获取数据
+ */
+class SectionIndexBuilder implements MessageQueue.IdleHandler {
+    /**
+     * 每次空闲时建立索引的最长耗时
+     */
+    private static final long FRAME_BUDGET_MS = 2;
+    /**
+     * 每批探测的position数量，每批之后检查一次耗时
+     */
+    private static final int PROBE_BATCH = 32;
+
+    /**
+     * 执行探测的对象
+     */
+    interface Target {
+        /**
+         * 继续探测最多count个position
+         *
+         * @return 是否已经没有需要探测的position
+         */
+        boolean probeSectionIndex(int count);
+    }
+
+    private final Target mTarget;
+    private boolean mScheduled;
+
+    SectionIndexBuilder(Target target) {
+        mTarget = target;
+    }
+
+    /**
+     * 在主线程调用，下一次空闲时开始(或继续)探测
+     */
+    void schedule() {
+        if (!mScheduled) {
+            mScheduled = true;
+            Looper.myQueue().addIdleHandler(this);
+        }
+    }
+
+    @Override
+    public boolean queueIdle() {
+        long deadline = SystemClock.uptimeMillis() + FRAME_BUDGET_MS;
+        boolean finished;
+        do {
+            finished = mTarget.probeSectionIndex(PROBE_BATCH);
+        } while (!finished && SystemClock.uptimeMillis() < deadline);
+        // 返回true则保留该IdleHandler，下一次空闲时继续探测
+        mScheduled = !finished;
+        return mScheduled;
+    }
+}
@@ -0,0 +1,39 @@
+package com.cb.sticky;
+
+import com.cb.sticky.engine.SectionIndex;
+import com.cb.sticky.engine.StickyCache;
+
+/**
+ * adapter局部刷新时，同步更新sticky数据缓存以及对应的section索引
+ * <p>
+ * ①缓存总是先于索引更新，索引重新探测边界position时不会读到过期的缓存
+ * ②区间之后的第一个item是否为起点可能取决于区间内的最后一个item，所以内容变化时该item的缓存也需要失效
+ */
+final class SectionRangeUpdater {
+    private SectionRangeUpdater() {
+    }
+
+    static void changeRange(StickyCache<?> cache, SectionIndex index, SectionIndex.SectionProber prober,
+                            int positionStart, int itemCount) {
+        cache.invalidateRange(positionStart, itemCount + 1);
+        index.changeRange(positionStart, itemCount, prober);
+    }
+
+    static void insertRange(StickyCache<?> cache, SectionIndex index, SectionIndex.SectionProber prober,
+                            int positionStart, int itemCount) {
+        cache.insertRange(positionStart, itemCount);
+        index.insertRange(positionStart, itemCount, prober);
+    }
+
+    static void removeRange(StickyCache<?> cache, SectionIndex index, SectionIndex.SectionProber prober,
+                            int positionStart, int itemCount) {
+        cache.removeRange(positionStart, itemCount);
+        index.removeRange(positionStart, itemCount, prober);
+    }
+
+    static void moveRange(StickyCache<?> cache, SectionIndex index, SectionIndex.SectionProber prober,
+                          int fromPosition, int toPosition, int itemCount) {
+        cache.moveRange(fromPosition, toPosition, itemCount);
+        index.moveRange(fromPosition, toPosition, itemCount, prober);
+    }
+}
@@ -0,0 +1,145 @@
+package com.cb.sticky;
+
+import java.util.Arrays;
+
+/**
+ * 不可变的section快照：所有section起点、对应的sticky数据以及可选的sticky view高度
+ * <p>
+ * ①由业务在后台线程构建，通过{@link LinearStickyDecoration#setSectionSnapshot(SectionSnapshot)}发布，
+ * decoration在主线程读取时不需要加锁，也不再从主线程读取业务的可变列表
+ * ②数据量大时可以把列表分段，在多个线程中分别构建，再通过{@link #concat(int, SectionSnapshot...)}按顺序合并
+ * ③查找某个position的数据为二分查找
+ */
+public final class SectionSnapshot {
+    private final int mItemCount;
+    private final int[] mStarts;
+    private final LinearStickyDecoration.BaseStickyData[] mData;
+    private final int[] mHeights;
+
+    private SectionSnapshot(int itemCount, int[] starts, LinearStickyDecoration.BaseStickyData[] data, int[] heights) {
+        mItemCount = itemCount;
+        mStarts = starts;
+        mData = data;
+        mHeights = heights;
+    }
+
+    /**
+     * 构建快照时列表的item数量，与adapter的数量不一致时decoration不会使用该快照
+     */
+    public int getItemCount() {
+        return mItemCount;
+    }
+
+    public int getSectionCount() {
+        return mStarts.length;
+    }
+
+    public int getSectionStart(int section) {
+        return mStarts[section];
+    }
+
+    public LinearStickyDecoration.BaseStickyData getSectionData(int section) {
+        return mData[section];
+    }
+
+    /**
+     * position处嵌入的sticky数据，不是section起点则返回null
+     */
+    public LinearStickyDecoration.BaseStickyData getData(int position) {
+        int index = Arrays.binarySearch(mStarts, position);
+        return index >= 0 ? mData[index] : null;
+    }
+
+    /**
+     * position处预先计算的sticky view高度，没有则返回0
+     */
+    public int getHeight(int position) {
+        int index = Arrays.binarySearch(mStarts, position);
+        return index >= 0 ? mHeights[index] : 0;
+    }
+
+    int[] getStarts() {
+        return mStarts;
+    }
+
+    /**
+     * 按顺序合并分段构建的快照，各段的section起点需要依次递增
+     *
+     * @param itemCount 整个列表的item数量
+     */
+    public static SectionSnapshot concat(int itemCount, SectionSnapshot... parts) {
+        int count = 0;
+        for (SectionSnapshot part : parts) {
+            count += part.mStarts.length;
+        }
+        int[] starts = new int[count];
+        LinearStickyDecoration.BaseStickyData[] data = new LinearStickyDecoration.BaseStickyData[count];
+        int[] heights = new int[count];
+        int offset = 0;
+        for (SectionSnapshot part : parts) {
+            int length = part.mStarts.length;
+            if (length > 0 && offset > 0 && part.mStarts[0] <= starts[offset - 1]) {
+                throw new IllegalArgumentException("section snapshots must be concatenated in position order");
+            }
+            System.arraycopy(part.mStarts, 0, starts, offset, length);
+            System.arraycopy(part.mData, 0, data, offset, length);
+            System.arraycopy(part.mHeights, 0, heights, offset, length);
+            offset += length;
+        }
+        if (count > 0 && starts[count - 1] >= itemCount) {
+            throw new IllegalArgumentException("section start " + starts[count - 1] + " out of item count " + itemCount);
+        }
+        return new SectionSnapshot(itemCount, starts, data, heights);
+    }
+
+    /**
+     * 按照position递增的顺序添加section起点
+     */
+    public static class Builder {
+        private final int mItemCount;
+        private int[] mStarts = new int[16];
+        private LinearStickyDecoration.BaseStickyData[] mData = new LinearStickyDecoration.BaseStickyData[16];
+        private int[] mHeights = new int[16];
+        private int mSize;
+
+        /**
+         * @param itemCount 整个列表的item数量(分段构建时也是整个列表的数量)
+         */
+        public Builder(int itemCount) {
+            mItemCount = itemCount;
+        }
+
+        public Builder add(int position, LinearStickyDecoration.BaseStickyData data) {
+            return add(position, data, 0);
+        }
+
+        /**
+         * @param height 预先计算的sticky view高度，为0时由decoration measure
+         */
+        public Builder add(int position, LinearStickyDecoration.BaseStickyData data, int height) {
+            if (data == null) {
+                throw new IllegalArgumentException("section data must not be null");
+            }
+            if (position < 0 || position >= mItemCount || (mSize > 0 && position <= mStarts[mSize - 1])) {
+                throw new IllegalArgumentException("section start " + position + " must be increasing and within "
+                        + mItemCount);
+            }
+            if (mSize == mStarts.length) {
+                int capacity = mSize * 2;
+                mStarts = Arrays.copyOf(mStarts, capacity);
+                mData = Arrays.copyOf(mData, capacity);
+                mHeights = Arrays.copyOf(mHeights, capacity);
+            }
+            mStarts[mSize] = position;
+            mData[mSize] = data;
+            mHeights[mSize] = Math.max(height, 0);
+            mSize++;
+            return this;
+        }
+
+        public SectionSnapshot build() {
+            return new SectionSnapshot(mItemCount, Arrays.copyOf(mStarts, mSize), Arrays.copyOf(mData, mSize),
+                    Arrays.copyOf(mHeights, mSize));
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.cb.sticky;
+
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.cb.sticky.engine.SectionIndex;
+
+import java.util.Arrays;
+
+/**
+ * 一次列表差量提交(ListAdapter#submitList、AsyncListDiffer、DiffUtil#dispatchUpdatesTo)对应的section重建
+ * <p>
+ * 在后台线程根据新列表重建section索引，并把旧缓存中的sticky view高度按照DiffResult映射到新的position，
+ * 提交时在主线程一次性替换，提交过程中产生的大量局部刷新事件不再逐个更新索引以及缓存
+ * <p>
+ * 使用方式：
+ * <pre>
+ * // 主线程
+ * final StickyDiffSession session = decoration.beginDiff();
+ * // 后台线程
+ * DiffUtil.DiffResult diff = DiffUtil.calculateDiff(callback);
+ * session.prepare(newListSource, diff);
+ * // 回到主线程
+ * session.arm();
+ * adapter.setList(newList);
+ * diff.dispatchUpdatesTo(adapter);
+ * session.commit();
+ * </pre>
+ * 使用ListAdapter时，在submitList之前调用{@link #arm()}，在commitCallback中调用{@link #commit()}；
+ * commit需要与刷新事件的分发在同一次主线程消息中完成
+ */
+public class StickyDiffSession {
+    /**
+     * 新列表的sticky数据，会在后台线程调用，实现方需要保证新列表在此期间不被修改
+     */
+    public interface NewListSource {
+        int getItemCount();
+
+        /**
+         * 与{@link LinearStickyDecoration.IStickyItem#obtainInsideDataByPosition(int)}相同，只是读取的是新列表
+         */
+        LinearStickyDecoration.BaseStickyData obtainInsideDataByPosition(int position);
+    }
+
+    private final LinearStickyDecoration mDecoration;
+    /**
+     * 开始时sticky view的宽度，为0时不预先计算高度
+     */
+    final int width;
+    private final int mWindow;
+    private final int mOldFirstVisible;
+    private final int mOldLastVisible;
+    /**
+     * 开始时旧缓存的快照(position有序)
+     */
+    private int[] mOldPositions = new int[16];
+    private LinearStickyDecoration.BaseStickyData[] mOldData = new LinearStickyDecoration.BaseStickyData[16];
+    private int[] mOldHeights = new int[16];
+    private int mOldCount;
+
+    /**
+     * 后台线程准备好的结果，通过主线程的消息传递可见
+     */
+    SectionIndex sectionIndex;
+    int[] preparedPositions;
+    LinearStickyDecoration.BaseStickyData[] preparedData;
+    int[] preparedHeights;
+    int preparedCount;
+    private int mPreparedItemCount = -1;
+    /**
+     * arm时由decoration分配，0为没有arm过
+     */
+    int generation;
+
+    StickyDiffSession(LinearStickyDecoration decoration, int width, int window,
+                      int oldFirstVisible, int oldLastVisible) {
+        mDecoration = decoration;
+        this.width = width;
+        mWindow = window;
+        mOldFirstVisible = oldFirstVisible;
+        mOldLastVisible = oldLastVisible;
+    }
+
+    void addOldEntry(int position, LinearStickyDecoration.BaseStickyData data, int height) {
+        if (mOldCount == mOldPositions.length) {
+            int capacity = mOldCount * 2;
+            mOldPositions = Arrays.copyOf(mOldPositions, capacity);
+            mOldData = Arrays.copyOf(mOldData, capacity);
+            mOldHeights = Arrays.copyOf(mOldHeights, capacity);
+        }
+        mOldPositions[mOldCount] = position;
+        mOldData[mOldCount] = data;
+        mOldHeights[mOldCount] = height;
+        mOldCount++;
+    }
+
+    /**
+     * 在后台线程调用：根据新列表建立section索引，并为旧可见区域映射之后的附近section准备好数据及高度
+     *
+     * @param diff 新旧列表的差量结果，为null时只使用按内容key缓存的高度
+     */
+    public void prepare(final NewListSource newList, @Nullable DiffUtil.DiffResult diff) {
+        int itemCount = newList.getItemCount();
+        SectionIndex index = new SectionIndex();
+        index.build(itemCount, new SectionIndex.SectionProber() {
+            @Override
+            public boolean isSectionStart(int position) {
+                return newList.obtainInsideDataByPosition(position) != null;
+            }
+        });
+        // 旧的可见区域在新列表中的位置，之后的布局大概率就在这附近
+        int center = mapPosition(diff, mOldFirstVisible, itemCount);
+        int span = mOldLastVisible >= mOldFirstVisible ? mOldLastVisible - mOldFirstVisible : 0;
+        int from = Math.max(center - mWindow, 0);
+        int to = Math.min(center + span + mWindow, itemCount - 1);
+
+        int capacity = 8;
+        int[] positions = new int[capacity];
+        LinearStickyDecoration.BaseStickyData[] data = new LinearStickyDecoration.BaseStickyData[capacity];
+        int[] heights = new int[capacity];
+        int count = 0;
+        StickyHeightMemo memo = mDecoration.getHeightMemo();
+        for (int i = Math.max(index.sectionOf(from), 0), size = index.size(); i < size; i++) {
+            int position = index.get(i);
+            if (position > to) break;
+            if (position < from) continue;
+            LinearStickyDecoration.BaseStickyData newData = newList.obtainInsideDataByPosition(position);
+            if (newData == null) continue;
+            int height = newData.definitelyHeight;
+            if (height <= 0) {
+                height = memo.get(newData.getContentKey(), mDecoration.getStickyViewType(newData), width);
+            }
+            if (height <= 0) {
+                height = findOldHeight(diff, position, newData);
+            }
+            if (height <= 0) continue;
+            if (count == capacity) {
+                capacity *= 2;
+                positions = Arrays.copyOf(positions, capacity);
+                data = Arrays.copyOf(data, capacity);
+                heights = Arrays.copyOf(heights, capacity);
+            }
+            positions[count] = position;
+            data[count] = newData;
+            heights[count] = height;
+            count++;
+        }
+        sectionIndex = index;
+        preparedPositions = positions;
+        preparedData = data;
+        preparedHeights = heights;
+        preparedCount = count;
+        mPreparedItemCount = itemCount;
+    }
+
+    /**
+     * 在主线程、列表开始提交之前调用，此后的局部刷新事件不再更新decoration的索引以及缓存，直到{@link #commit()}；
+     * 在此之前再次arm新的session时，该session被取代，它的commit会被忽略；
+     * 列表分发了刷新事件之后，下一帧之前还没有commit(或者adapter的item数量与arm时不一致)时，该session失效，
+     * decoration全部清理后重新建立索引以及缓存，之后的commit同样会被忽略
+     */
+    public void arm() {
+        mDecoration.armDiffSession(this);
+    }
+
+    /**
+     * 在主线程、列表提交完成之后调用，替换decoration的section索引以及缓存；新列表的数量与准备时不一致则放弃准备的结果
+     */
+    public void commit() {
+        mDecoration.commitDiffSession(this);
+    }
+
+    /**
+     * 准备的结果是否与adapter当前的数据一致
+     */
+    boolean isPreparedFor(RecyclerView.Adapter adapter) {
+        return sectionIndex != null && adapter != null && adapter.getItemCount() == mPreparedItemCount;
+    }
+
+    /**
+     * 旧列表中同一个section的高度：旧position在新列表中的位置一致，并且数据相同
+     */
+    private int findOldHeight(@Nullable DiffUtil.DiffResult diff, int newPosition,
+                              LinearStickyDecoration.BaseStickyData newData) {
+        if (width <= 0) return 0;
+        for (int i = 0; i < mOldCount; i++) {
+            LinearStickyDecoration.BaseStickyData oldData = mOldData[i];
+            int mapped = convertOldPosition(diff, mOldPositions[i]);
+            if (mapped != newPosition) continue;
+            Object oldKey = oldData.getContentKey();
+            if (oldData == newData || (oldKey != null && oldKey.equals(newData.getContentKey()))) {
+                return mOldHeights[i];
+            }
+            return 0;
+        }
+        return 0;
+    }
+
+    /**
+     * 旧position在新列表中的位置，没有diff时位置不变
+     *
+     * @return 被删除或者不在旧列表的范围内时返回{@link RecyclerView#NO_POSITION}
+     */
+    private static int convertOldPosition(@Nullable DiffUtil.DiffResult diff, int oldPosition) {
+        if (diff == null) return oldPosition;
+        try {
+            return diff.convertOldPositionToNew(oldPosition);
+        } catch (IndexOutOfBoundsException e) {
+            // 旧的position已经不在旧列表的范围内(如：开始之后又有过刷新)
+            return RecyclerView.NO_POSITION;
+        }
+    }
+
+    private static int mapPosition(@Nullable DiffUtil.DiffResult diff, int oldPosition, int newItemCount) {
+        if (newItemCount <= 0 || oldPosition < 0) return 0;
+        int mapped = convertOldPosition(diff, oldPosition);
+        if (mapped == RecyclerView.NO_POSITION) {
+            // 旧的首个可见item被删除了，使用原来的position
+            mapped = oldPosition;
+        }
+        return Math.min(mapped, newItemCount - 1);
+    }
+}
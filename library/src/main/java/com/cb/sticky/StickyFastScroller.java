@@ -0,0 +1,264 @@
+package com.cb.sticky;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+import android.view.MotionEvent;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * 按照section定位的快速滑动条
+ * <p>
+ * ①滑块的位置按照section的序号计算(而不是item)，section很多时也可以精确定位到某个section
+ * ②拖动滑块时通过{@link LinearStickyDecoration#scrollToSection(RecyclerView, int)}直接跳转，不会平滑滑动经过中间的item
+ * ③拖动时在滑块左侧展示当前悬停视图的section标签，标签由{@link SectionLabelProvider}从{@link LinearStickyDecoration.BaseStickyData}中获取
+ * ④section索引在主线程空闲时分批建立，建立完成之前不展示滑块，也不响应拖动，不会在绘制过程中同步探测所有position
+ */
+public class StickyFastScroller extends RecyclerView.ItemDecoration implements RecyclerView.OnItemTouchListener {
+    /**
+     * 停止滑动之后，滑动条隐藏的延迟
+     */
+    private static final long HIDE_DELAY_MS = 1500;
+
+    /**
+     * 从sticky数据中获取section的标签
+     */
+    public interface SectionLabelProvider<StickData extends LinearStickyDecoration.BaseStickyData> {
+        CharSequence getSectionLabel(StickData data);
+    }
+
+    private final LinearStickyDecoration mDecoration;
+    private final SectionLabelProvider mLabelProvider;
+    private final Paint mThumbPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mBubblePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mLabelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF mRect = new RectF();
+    private RecyclerView mRecyclerView;
+    private int mThumbWidth;
+    private int mThumbHeight;
+    private int mTouchWidth;
+    private int mBubblePadding;
+    private int mBubbleMargin;
+    /**
+     * 滑块顶部的位置
+     */
+    private int mThumbTop;
+    private boolean mVisible;
+    /**
+     * 最近一次绘制时是否绘制了滑块
+     */
+    private boolean mThumbDrawn;
+    private boolean mDragging;
+    private int mDragSection = -1;
+
+    private final Runnable mHideRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (!mDragging && mRecyclerView != null) {
+                mVisible = false;
+                mRecyclerView.invalidate();
+            }
+        }
+    };
+
+    private final RecyclerView.OnScrollListener mOnScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            if (dy != 0) {
+                show();
+            }
+        }
+
+        @Override
+        public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+            if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                scheduleHide();
+            }
+        }
+    };
+
+    public StickyFastScroller(LinearStickyDecoration decoration, SectionLabelProvider labelProvider) {
+        mDecoration = decoration;
+        mLabelProvider = labelProvider;
+        mThumbPaint.setColor(Color.parseColor("#99333333"));
+        mBubblePaint.setColor(Color.parseColor("#333333"));
+        mLabelPaint.setColor(Color.WHITE);
+        mLabelPaint.setTextAlign(Paint.Align.CENTER);
+    }
+
+    /**
+     * 绑定到RecyclerView上，需要在sticky decoration之后调用，以保证滑动条绘制在悬停视图之上
+     */
+    public void attachToRecyclerView(RecyclerView recyclerView) {
+        if (mRecyclerView == recyclerView) return;
+        if (mRecyclerView != null) {
+            mRecyclerView.removeItemDecoration(this);
+            mRecyclerView.removeOnItemTouchListener(this);
+            mRecyclerView.removeOnScrollListener(mOnScrollListener);
+            mRecyclerView.removeCallbacks(mHideRunnable);
+            if (mRecyclerView instanceof MyRecyclerView) {
+                ((MyRecyclerView) mRecyclerView).setFastScroller(null);
+            }
+        }
+        mRecyclerView = recyclerView;
+        if (recyclerView == null) return;
+        DisplayMetrics metrics = recyclerView.getResources().getDisplayMetrics();
+        mThumbWidth = dp(metrics, 6);
+        mThumbHeight = dp(metrics, 48);
+        mTouchWidth = dp(metrics, 32);
+        mBubblePadding = dp(metrics, 12);
+        mBubbleMargin = dp(metrics, 8);
+        mLabelPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 20, metrics));
+        recyclerView.addItemDecoration(this);
+        recyclerView.addOnItemTouchListener(this);
+        recyclerView.addOnScrollListener(mOnScrollListener);
+        if (recyclerView instanceof MyRecyclerView) {
+            ((MyRecyclerView) recyclerView).setFastScroller(this);
+        }
+    }
+
+    public void setThumbColor(int color) {
+        mThumbPaint.setColor(color);
+    }
+
+    public void setBubbleColor(int color) {
+        mBubblePaint.setColor(color);
+    }
+
+    public void setLabelTextColor(int color) {
+        mLabelPaint.setColor(color);
+    }
+
+    @Override
+    public void onDrawOver(@NonNull Canvas c, @NonNull RecyclerView parent, @NonNull RecyclerView.State state) {
+        mThumbDrawn = false;
+        if (!mVisible || !mDecoration.isSectionIndexBuilt(parent)) return;
+        int sectionCount = mDecoration.getSectionCount(parent);
+        if (sectionCount <= 1) return;
+        mThumbDrawn = true;
+        int section = mDragging ? mDragSection : currentSection(parent);
+        int trackHeight = parent.getHeight() - parent.getPaddingTop() - parent.getPaddingBottom() - mThumbHeight;
+        mThumbTop = parent.getPaddingTop() + Math.round(trackHeight * (float) Math.max(section, 0) / (sectionCount - 1));
+        int right = parent.getWidth() - parent.getPaddingRight();
+        mRect.set(right - mThumbWidth, mThumbTop, right, mThumbTop + mThumbHeight);
+        c.drawRoundRect(mRect, mThumbWidth / 2f, mThumbWidth / 2f, mThumbPaint);
+        if (mDragging) {
+            drawBubble(c, right - mThumbWidth - mBubbleMargin);
+        }
+    }
+
+    /**
+     * 在滑块左侧绘制当前悬停视图的section标签
+     */
+    @SuppressWarnings("unchecked")
+    private void drawBubble(Canvas c, int right) {
+        LinearStickyDecoration.BaseStickyData data = mDecoration.getHoverStickyData();
+        CharSequence label = data != null && mLabelProvider != null ? mLabelProvider.getSectionLabel(data) : null;
+        if (label == null || label.length() == 0) return;
+        float textWidth = mLabelPaint.measureText(label, 0, label.length());
+        float size = Math.max(textWidth, mLabelPaint.getTextSize()) + mBubblePadding * 2;
+        float centerY = mThumbTop + mThumbHeight / 2f;
+        mRect.set(right - size, centerY - size / 2, right, centerY + size / 2);
+        c.drawRoundRect(mRect, size / 2, size / 2, mBubblePaint);
+        float baseline = centerY - (mLabelPaint.descent() + mLabelPaint.ascent()) / 2;
+        c.drawText(label, 0, label.length(), mRect.centerX(), baseline, mLabelPaint);
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(@NonNull RecyclerView rv, @NonNull MotionEvent e) {
+        if (e.getActionMasked() == MotionEvent.ACTION_DOWN && isInTouchArea(e.getX(), e.getY())) {
+            startDrag(rv, e.getY());
+            return true;
+        }
+        return mDragging;
+    }
+
+    @Override
+    public void onTouchEvent(@NonNull RecyclerView rv, @NonNull MotionEvent e) {
+        switch (e.getActionMasked()) {
+            case MotionEvent.ACTION_MOVE:
+                dragTo(rv, e.getY());
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                mDragging = false;
+                mDragSection = -1;
+                rv.invalidate();
+                scheduleHide();
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void onRequestDisallowInterceptTouchEvent(boolean disallowIntercept) {
+    }
+
+    /**
+     * 触摸点是否位于滑块上(可见时)
+     */
+    boolean isInTouchArea(float x, float y) {
+        if (!mVisible || !mThumbDrawn || mRecyclerView == null) return false;
+        int right = mRecyclerView.getWidth() - mRecyclerView.getPaddingRight();
+        return x >= right - mTouchWidth && x <= right && y >= mThumbTop && y <= mThumbTop + mThumbHeight;
+    }
+
+    private void startDrag(RecyclerView rv, float y) {
+        mDragging = true;
+        mDragSection = currentSection(rv);
+        rv.removeCallbacks(mHideRunnable);
+        if (rv.getParent() != null) {
+            rv.getParent().requestDisallowInterceptTouchEvent(true);
+        }
+        rv.stopScroll();
+        dragTo(rv, y);
+    }
+
+    /**
+     * 按照触摸点在滑动轨道上的比例换算为section的序号，序号变化时才跳转
+     */
+    private void dragTo(RecyclerView rv, float y) {
+        // 拖动过程中数据全量刷新，索引重新建立完成之前不跳转
+        if (!mDecoration.isSectionIndexBuilt(rv)) return;
+        int sectionCount = mDecoration.getSectionCount(rv);
+        if (sectionCount <= 0) return;
+        float trackHeight = rv.getHeight() - rv.getPaddingTop() - rv.getPaddingBottom() - mThumbHeight;
+        float fraction = trackHeight > 0 ? (y - rv.getPaddingTop() - mThumbHeight / 2f) / trackHeight : 0;
+        fraction = Math.max(0, Math.min(fraction, 1));
+        int section = Math.round(fraction * (sectionCount - 1));
+        if (section != mDragSection) {
+            mDragSection = section;
+            mDecoration.scrollToSection(rv, section);
+        }
+        rv.invalidate();
+    }
+
+    private int currentSection(RecyclerView parent) {
+        if (parent.getChildCount() <= 0 || !mDecoration.isSectionIndexBuilt(parent)) return -1;
+        View first = parent.getChildAt(0);
+        return mDecoration.getSectionOfPosition(parent, parent.getChildLayoutPosition(first));
+    }
+
+    private void show() {
+        if (mRecyclerView == null) return;
+        mRecyclerView.removeCallbacks(mHideRunnable);
+        mVisible = true;
+    }
+
+    private void scheduleHide() {
+        if (mRecyclerView == null) return;
+        mRecyclerView.removeCallbacks(mHideRunnable);
+        mRecyclerView.postDelayed(mHideRunnable, HIDE_DELAY_MS);
+    }
+
+    private static int dp(DisplayMetrics metrics, int dp) {
+        return Math.round(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, dp, metrics));
+    }
+}
@@ -0,0 +1,118 @@
+package com.cb.sticky;
+
+/**
+ * 一帧内sticky decoration的耗时统计
+ * <p>
+ * 统计从上一帧的onDrawOver结束到本帧的onDrawOver结束之间的数据，包含本帧布局时的getItemOffsets，
+ * 以及两帧之间主线程空闲时的预取；对象在每帧之间复用，回调之外不要持有
+ */
+public class StickyFrameMetrics {
+    int bindViewCount;
+    int bindSkipCount;
+    int sectionTransitionCount;
+    int measureCount;
+    int cacheHitCount;
+    int cacheMissCount;
+    int obtainInsideDataCount;
+    int obtainHoverDataCount;
+    long drawOverNanos;
+    long itemOffsetsNanos;
+
+    /**
+     * {@link LinearStickyDecoration.IStickyItem#bindView}的调用次数
+     */
+    public int getBindViewCount() {
+        return bindViewCount;
+    }
+
+    /**
+     * 视图已经绑定了该数据，跳过bind & measure的次数
+     */
+    public int getBindSkipCount() {
+        return bindSkipCount;
+    }
+
+    /**
+     * 悬停视图的section切换次数(包含出现、消失)
+     */
+    public int getSectionTransitionCount() {
+        return sectionTransitionCount;
+    }
+
+    /**
+     * sticky view的measure & layout次数
+     */
+    public int getMeasureCount() {
+        return measureCount;
+    }
+
+    /**
+     * 按照position缓存的sticky数据的命中次数
+     */
+    public int getCacheHitCount() {
+        return cacheHitCount;
+    }
+
+    /**
+     * section起点的sticky数据不在缓存中、需要重新获取的次数
+     */
+    public int getCacheMissCount() {
+        return cacheMissCount;
+    }
+
+    /**
+     * {@link LinearStickyDecoration.IStickyItem#obtainInsideDataByPosition(int)}的调用次数
+     */
+    public int getObtainInsideDataCount() {
+        return obtainInsideDataCount;
+    }
+
+    /**
+     * {@link LinearStickyDecoration.IStickyItem#obtainHoverData(int)}的调用次数
+     */
+    public int getObtainHoverDataCount() {
+        return obtainHoverDataCount;
+    }
+
+    /**
+     * onDrawOver的耗时(纳秒)
+     */
+    public long getDrawOverNanos() {
+        return drawOverNanos;
+    }
+
+    /**
+     * 本帧所有getItemOffsets的耗时之和(纳秒)
+     */
+    public long getItemOffsetsNanos() {
+        return itemOffsetsNanos;
+    }
+
+    void reset() {
+        bindViewCount = 0;
+        bindSkipCount = 0;
+        sectionTransitionCount = 0;
+        measureCount = 0;
+        cacheHitCount = 0;
+        cacheMissCount = 0;
+        obtainInsideDataCount = 0;
+        obtainHoverDataCount = 0;
+        drawOverNanos = 0;
+        itemOffsetsNanos = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "StickyFrameMetrics{bind=" + bindViewCount
+                + ", bindSkip=" + bindSkipCount
+                + ", transition=" + sectionTransitionCount
+                + ", measure=" + measureCount
+                + ", cacheHit=" + cacheHitCount
+                + ", cacheMiss=" + cacheMissCount
+                + ", obtainInside=" + obtainInsideDataCount
+                + ", obtainHover=" + obtainHoverDataCount
+                + ", drawOverNs=" + drawOverNanos
+                + ", itemOffsetsNs=" + itemOffsetsNanos
+                + '}';
+    }
+}
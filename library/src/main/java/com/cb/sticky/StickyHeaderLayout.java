@@ -0,0 +1,266 @@
+package com.cb.sticky;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.util.SparseArray;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.widget.FrameLayout;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * 包裹RecyclerView的覆盖层，悬停视图作为真实的子view展示在RecyclerView之上
+ * <p>
+ * ①每种viewType只创建一个悬停视图，开启硬件层，只在section切换时绑定数据，上推时只修改translationY，不需要重新绘制
+ * ②decoration绘制时只更新translationY；创建、绑定、布局以及显示隐藏推迟到下一帧绘制之前(OnPreDrawListener)，不在绘制过程中修改视图树
+ * ③悬停视图可以直接设置点击事件、响应无障碍服务；没有设置点击事件时也会消费触摸事件，防止点击穿透到下面的item；
+ * 快速滑动条({@link StickyFastScroller})的滑块位于悬停视图之上时，触摸事件直接交给RecyclerView
+ * ④RecyclerView需要是该布局的直接子view，通过{@link #attach(LinearStickyDecoration)}切换到覆盖层模式
+ * <pre>
+ * &lt;com.cb.sticky.StickyHeaderLayout&gt;
+ *     &lt;androidx.recyclerview.widget.RecyclerView /&gt;
+ * &lt;/com.cb.sticky.StickyHeaderLayout&gt;
+ * </pre>
+ */
+public class StickyHeaderLayout extends FrameLayout {
+    /**
+     * viewType -> 悬停视图
+     */
+    private final SparseArray<View> mHoverViews = new SparseArray<>();
+    private LinearStickyDecoration mDecoration;
+    private RecyclerView mRecyclerView;
+    /**
+     * 当前展示的悬停视图以及其绑定的数据
+     */
+    private View mHoverView;
+    private LinearStickyDecoration.BaseStickyData mBoundData;
+    /**
+     * 绘制时产生的、等待在下一帧绘制之前处理的悬停数据，为null时隐藏
+     */
+    private boolean mPendingUpdate;
+    private LinearStickyDecoration.BaseStickyData mPendingData;
+    private int mPendingOffset;
+    /**
+     * 本次触摸序列是否直接交给RecyclerView(按下时位于快速滑动条的滑块上)
+     */
+    private boolean mTouchToRecyclerView;
+    private final ViewTreeObserver.OnPreDrawListener mOnPreDrawListener = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            if (mPendingUpdate) {
+                applyPendingUpdate();
+            }
+            return true;
+        }
+    };
+
+    public StickyHeaderLayout(@NonNull Context context) {
+        super(context);
+    }
+
+    public StickyHeaderLayout(@NonNull Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public StickyHeaderLayout(@NonNull Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+    }
+
+    /**
+     * 由覆盖层展示decoration的悬停视图，传入null时恢复为decoration绘制
+     */
+    public void attach(LinearStickyDecoration decoration) {
+        if (mDecoration == decoration) return;
+        if (mDecoration != null) {
+            mDecoration.setHoverOverlay(null);
+        }
+        for (int i = 0, size = mHoverViews.size(); i < size; i++) {
+            removeView(mHoverViews.valueAt(i));
+        }
+        mHoverViews.clear();
+        mHoverView = null;
+        mBoundData = null;
+        mPendingUpdate = false;
+        mPendingData = null;
+        mDecoration = decoration;
+        if (decoration != null) {
+            decoration.setHoverOverlay(this);
+        }
+    }
+
+    /**
+     * 当前展示的悬停视图，没有悬停视图时返回null
+     */
+    public View getHoverView() {
+        return mHoverView != null && mHoverView.getVisibility() == VISIBLE ? mHoverView : null;
+    }
+
+    /**
+     * decoration每帧绘制时调用：section没有变化时只更新上推的偏移，否则推迟到下一帧绘制之前重新绑定
+     *
+     * @param data 悬停视图的数据，为null时隐藏
+     * @param offset 悬停视图被向上推动的距离
+     */
+    void updateHover(RecyclerView parent, LinearStickyDecoration.BaseStickyData data, int offset) {
+        if (parent.getParent() != this) {
+            data = null;
+        } else {
+            mRecyclerView = parent;
+        }
+        View view = mHoverView;
+        boolean shown = view != null && view.getVisibility() == VISIBLE;
+        if (data != null ? shown && data == mBoundData : !shown) {
+            mPendingUpdate = false;
+            mPendingData = null;
+            if (view != null && view.getTranslationY() != -offset) {
+                view.setTranslationY(-offset);
+            }
+            return;
+        }
+        mPendingData = data;
+        mPendingOffset = offset;
+        if (!mPendingUpdate) {
+            mPendingUpdate = true;
+            // 绘制过程中不修改视图树，请求下一帧
+            postInvalidateOnAnimation();
+        }
+    }
+
+    /**
+     * 在下一帧绘制之前，创建、绑定、布局以及显示隐藏悬停视图
+     */
+    private void applyPendingUpdate() {
+        LinearStickyDecoration.BaseStickyData data = mPendingData;
+        int offset = mPendingOffset;
+        mPendingUpdate = false;
+        mPendingData = null;
+        if (data == null || mDecoration == null || mRecyclerView == null) {
+            hideHover();
+            return;
+        }
+        int viewType = mDecoration.getStickyViewType(data);
+        View view = mHoverViews.get(viewType);
+        if (view == null) {
+            view = createHoverView(viewType);
+            if (view == null) return;
+        }
+        if (view != mHoverView) {
+            hideHover();
+            mHoverView = view;
+            mBoundData = null;
+        }
+        if (data != mBoundData) {
+            mBoundData = data;
+            mDecoration.bindHoverView(view, data);
+            // 在本帧绘制之前完成布局，不需要等待下一次布局才展示新的section
+            layoutHoverView(view);
+        }
+        if (view.getVisibility() != VISIBLE) {
+            view.setVisibility(VISIBLE);
+        }
+        if (view.getTranslationY() != -offset) {
+            view.setTranslationY(-offset);
+        }
+    }
+
+    void hideHover() {
+        if (mHoverView != null && mHoverView.getVisibility() != INVISIBLE) {
+            mHoverView.setVisibility(INVISIBLE);
+        }
+    }
+
+    /**
+     * 数据全部刷新之后，即使数据对象相同也需要重新绑定
+     */
+    void invalidateBinding() {
+        mBoundData = null;
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getViewTreeObserver().addOnPreDrawListener(mOnPreDrawListener);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        getViewTreeObserver().removeOnPreDrawListener(mOnPreDrawListener);
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent ev) {
+        if (ev.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            mTouchToRecyclerView = isInFastScrollerArea(ev);
+        }
+        if (!mTouchToRecyclerView) {
+            return super.dispatchTouchEvent(ev);
+        }
+        int action = ev.getActionMasked();
+        if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+            mTouchToRecyclerView = false;
+        }
+        // 跳过悬停视图，按照RecyclerView的坐标分发
+        RecyclerView recyclerView = mRecyclerView;
+        float offsetX = getScrollX() - recyclerView.getLeft();
+        float offsetY = getScrollY() - recyclerView.getTop();
+        ev.offsetLocation(offsetX, offsetY);
+        boolean handled = recyclerView.dispatchTouchEvent(ev);
+        ev.offsetLocation(-offsetX, -offsetY);
+        return handled;
+    }
+
+    /**
+     * 按下的位置是否位于RecyclerView的快速滑动条的滑块上
+     */
+    private boolean isInFastScrollerArea(MotionEvent ev) {
+        if (!(mRecyclerView instanceof MyRecyclerView) || mRecyclerView.getParent() != this) return false;
+        StickyFastScroller fastScroller = ((MyRecyclerView) mRecyclerView).getFastScroller();
+        return fastScroller != null && fastScroller.isInTouchArea(
+                ev.getX() + getScrollX() - mRecyclerView.getLeft(), ev.getY() + getScrollY() - mRecyclerView.getTop());
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        for (int i = 0, size = mHoverViews.size(); i < size; i++) {
+            layoutHoverView(mHoverViews.valueAt(i));
+        }
+    }
+
+    private View createHoverView(int viewType) {
+        View view = mDecoration.createHoverView(viewType);
+        if (view == null) return null;
+        // 只通过translationY移动，内容不变时不需要重新绘制
+        view.setLayerType(LAYER_TYPE_HARDWARE, null);
+        if (!view.isClickable()) {
+            view.setClickable(true);
+        }
+        view.setVisibility(INVISIBLE);
+        ViewGroup.LayoutParams params = view.getLayoutParams();
+        int height = params != null ? params.height : LayoutParams.WRAP_CONTENT;
+        addView(view, new LayoutParams(LayoutParams.MATCH_PARENT, height));
+        mHoverViews.put(viewType, view);
+        return view;
+    }
+
+    /**
+     * 悬停视图与RecyclerView的顶部、宽度对齐，与decoration在RecyclerView上绘制的位置一致
+     */
+    private void layoutHoverView(View view) {
+        RecyclerView recyclerView = mRecyclerView;
+        if (recyclerView == null || recyclerView.getWidth() <= 0) return;
+        int width = recyclerView.getWidth();
+        if (view.isLayoutRequested() || view.getMeasuredWidth() != width) {
+            view.measure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY), StickyViews.makeHeightSpec(view));
+        }
+        int left = recyclerView.getLeft();
+        int top = recyclerView.getTop();
+        view.layout(left, top, left + view.getMeasuredWidth(), top + view.getMeasuredHeight());
+    }
+}
@@ -0,0 +1,66 @@
+package com.cb.sticky;
+
+import android.util.LruCache;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import java.util.Map;
+
+/**
+ * 以sticky数据的内容key({@link LinearStickyDecoration.BaseStickyData#getContentKey()})、viewType以及宽度为key的高度缓存
+ * <p>
+ * 与position无关，所以在notifyDataSetChanged、下拉刷新、重新排序之后依然有效，不需要重新measure；
+ * 同一个内容key在不同类型的sticky view上高度可能不同，所以按照viewType分别缓存
+ * <p>
+ * 可以在后台线程读取({@link StickyDiffSession#prepare})，所以读写都需要同步
+ */
+class StickyHeightMemo {
+    static final int DEFAULT_MAX_KEYS = 512;
+
+    /**
+     * 内容key -> (viewType -> (宽度 -> 高度))
+     */
+    private LruCache<Object, SparseArray<SparseIntArray>> mHeights = new LruCache<>(DEFAULT_MAX_KEYS);
+
+    /**
+     * @return 没有缓存时返回0
+     */
+    synchronized int get(Object contentKey, int viewType, int width) {
+        if (contentKey == null) return 0;
+        SparseArray<SparseIntArray> types = mHeights.get(contentKey);
+        SparseIntArray heights = types != null ? types.get(viewType) : null;
+        return heights != null ? heights.get(width) : 0;
+    }
+
+    synchronized void put(Object contentKey, int viewType, int width, int height) {
+        if (contentKey == null || height <= 0) return;
+        SparseArray<SparseIntArray> types = mHeights.get(contentKey);
+        if (types == null) {
+            types = new SparseArray<>(1);
+            mHeights.put(contentKey, types);
+        }
+        SparseIntArray heights = types.get(viewType);
+        if (heights == null) {
+            heights = new SparseIntArray(1);
+            types.put(viewType, heights);
+        }
+        heights.put(width, height);
+    }
+
+    /**
+     * LruCache#resize需要API 21，这里按照从旧到新的顺序复制到新的缓存中，保留访问顺序
+     */
+    synchronized void setMaxKeys(int maxKeys) {
+        maxKeys = Math.max(maxKeys, 1);
+        if (mHeights.maxSize() == maxKeys) return;
+        LruCache<Object, SparseArray<SparseIntArray>> heights = new LruCache<>(maxKeys);
+        for (Map.Entry<Object, SparseArray<SparseIntArray>> entry : mHeights.snapshot().entrySet()) {
+            heights.put(entry.getKey(), entry.getValue());
+        }
+        mHeights = heights;
+    }
+
+    synchronized void clear() {
+        mHeights.evictAll();
+    }
+}
@@ -0,0 +1,156 @@
+package com.cb.sticky;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderNode;
+import android.os.Build;
+import android.view.View;
+
+/**
+ * 悬停视图的绘制缓存
+ * <p>
+ * ①悬停视图只在重新绑定数据、悬停的position变化或者大小变化时才重新绘制一次，之后每帧只更新上推的偏移
+ * ②API 29及以上的硬件加速画布中，录制到{@link RenderNode}，每帧只需要设置translationY并回放display list
+ * ③其他情况下缓存到位图中，每帧绘制位图
+ * ④未被attach的sticky view感知不到子view的刷新(如：异步加载完成的图片)，此时需要业务调用
+ * {@link LinearStickyDecoration#invalidateHover()}使缓存失效
+ */
+class StickyHoverRenderer {
+    private RenderNode mRenderNode;
+    private Bitmap mBitmap;
+    private Canvas mBitmapCanvas;
+    /**
+     * 当前缓存内容所对应的数据，为null时需要重新绘制
+     */
+    private Object mRecordedData;
+    private int mRecordedPosition;
+    private View mRecordedView;
+    private boolean mRecordedHardware;
+
+    /**
+     * 绘制悬停视图
+     *
+     * @param data 视图当前绑定的数据
+     * @param position 悬停的position
+     * @param transY 悬停视图被向上推动的距离
+     * @return 无法使用缓存(如：视图还没有布局)时返回false，需要直接绘制视图
+     */
+    boolean draw(Canvas canvas, View view, Object data, int position, int transY) {
+        int width = view.getWidth();
+        int height = view.getHeight();
+        if (width <= 0 || height <= 0) {
+            return false;
+        }
+        boolean hardware = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && canvas.isHardwareAccelerated();
+        // definitelyHeight>0时绑定数据之后不会measure，视图一直处于等待布局的状态，录制之前按照当前的大小完成布局
+        boolean layoutRequested = view.isLayoutRequested();
+        if (layoutRequested) {
+            view.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+            view.layout(0, 0, width, height);
+        }
+        if (layoutRequested || needRecord(view, data, position, width, height, hardware)) {
+            if (hardware) {
+                recordRenderNode(view, width, height);
+            } else {
+                recordBitmap(view, width, height);
+            }
+            mRecordedData = data;
+            mRecordedPosition = position;
+            mRecordedView = view;
+            mRecordedHardware = hardware;
+        }
+        if (hardware) {
+            drawRenderNode(canvas, transY);
+        } else {
+            canvas.drawBitmap(mBitmap, 0, -transY, null);
+        }
+        return true;
+    }
+
+    /**
+     * 数据被重新绑定、移出缓存或者复用，对应的绘制缓存也需要失效
+     *
+     * @param data 为null时无论缓存的是哪个数据都失效
+     */
+    void invalidate(Object data) {
+        if (data == null || data == mRecordedData) {
+            mRecordedData = null;
+        }
+    }
+
+    private boolean needRecord(View view, Object data, int position, int width, int height, boolean hardware) {
+        if (mRecordedData == null || mRecordedData != data || mRecordedPosition != position
+                || mRecordedView != view || mRecordedHardware != hardware) {
+            return true;
+        }
+        // 只能发现根视图自身的invalidate，子view的刷新需要通过invalidate使缓存失效
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && view.isDirty()) {
+            return true;
+        }
+        if (hardware) {
+            return !isRenderNodeSize(width, height);
+        }
+        return mBitmap.getWidth() != width || mBitmap.getHeight() != height;
+    }
+
+    @TargetApi(Build.VERSION_CODES.Q)
+    private boolean isRenderNodeSize(int width, int height) {
+        return mRenderNode.getWidth() == width && mRenderNode.getHeight() == height;
+    }
+
+    @TargetApi(Build.VERSION_CODES.Q)
+    private void recordRenderNode(View view, int width, int height) {
+        if (mRenderNode == null) {
+            mRenderNode = new RenderNode("StickyHoverView");
+        }
+        mRenderNode.setPosition(0, 0, width, height);
+        RecordingCanvas recordingCanvas = mRenderNode.beginRecording(width, height);
+        try {
+            view.draw(recordingCanvas);
+        } finally {
+            mRenderNode.endRecording();
+        }
+        releaseBitmap();
+    }
+
+    @TargetApi(Build.VERSION_CODES.Q)
+    private void drawRenderNode(Canvas canvas, int transY) {
+        // 只更新属性，不需要重新录制
+        mRenderNode.setTranslationY(-transY);
+        canvas.drawRenderNode(mRenderNode);
+    }
+
+    private void recordBitmap(View view, int width, int height) {
+        if (mBitmap == null || mBitmap.getWidth() != width || mBitmap.getHeight() != height) {
+            releaseBitmap();
+            mBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            mBitmapCanvas = new Canvas(mBitmap);
+        } else {
+            mBitmap.eraseColor(0);
+        }
+        view.draw(mBitmapCanvas);
+    }
+
+    private void releaseBitmap() {
+        if (mBitmap != null) {
+            mBitmap.recycle();
+            mBitmap = null;
+            mBitmapCanvas = null;
+        }
+    }
+
+    /**
+     * 释放所有的绘制缓存
+     */
+    void release() {
+        mRecordedData = null;
+        mRecordedView = null;
+        releaseBitmap();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && mRenderNode != null) {
+            mRenderNode.discardDisplayList();
+        }
+    }
+}
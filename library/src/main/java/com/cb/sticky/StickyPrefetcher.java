@@ -0,0 +1,118 @@
+package com.cb.sticky;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * sticky数据的预取
+ * <p>
+ * ①监听RecyclerView的滑动方向，在主线程空闲时(两帧之间)提前获取滑动方向上接下来N个position的sticky数据并measure
+ * ②每次空闲时最多执行{@link #FRAME_BUDGET_MS}毫秒，未完成的部分在下一次空闲时继续
+ * ③当sticky view滑入屏幕时，getItemOffsets直接命中缓存，不需要在布局的那一帧中同步bind&measure
+ */
+class StickyPrefetcher extends RecyclerView.OnScrollListener implements MessageQueue.IdleHandler {
+    static final int DEFAULT_PREFETCH_COUNT = 10;
+    /**
+     * 每次空闲时预取的最长耗时
+     */
+    private static final long FRAME_BUDGET_MS = 2;
+
+    /**
+     * 执行预取的对象
+     */
+    interface Target {
+        /**
+         * 获取并缓存position处的sticky数据
+         */
+        void prefetch(RecyclerView parent, int position);
+    }
+
+    private final Target mTarget;
+    private RecyclerView mParent;
+    private int mPrefetchCount = DEFAULT_PREFETCH_COUNT;
+    /**
+     * 滑动方向，1：向下(position增大的方向)，-1：向上，0：未滑动
+     */
+    private int mDirection;
+    private boolean mScheduled;
+    /**
+     * 下一个待预取的position以及剩余的数量
+     */
+    private int mNextPosition;
+    private int mRemaining;
+
+    StickyPrefetcher(Target target) {
+        mTarget = target;
+    }
+
+    void setPrefetchCount(int prefetchCount) {
+        mPrefetchCount = Math.max(prefetchCount, 0);
+        if (mPrefetchCount == 0) {
+            mRemaining = 0;
+        }
+    }
+
+    /**
+     * 绑定到RecyclerView上，以监听滑动方向
+     */
+    void attach(RecyclerView parent) {
+        if (mParent == parent) return;
+        if (mParent != null) {
+            mParent.removeOnScrollListener(this);
+        }
+        mParent = parent;
+        mDirection = 0;
+        mRemaining = 0;
+        parent.addOnScrollListener(this);
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        if (dy != 0) {
+            mDirection = dy > 0 ? 1 : -1;
+        }
+    }
+
+    /**
+     * 每帧绘制之后调用，根据可见区域以及滑动方向安排预取
+     */
+    void schedule(int firstVisiblePosition, int lastVisiblePosition, int maxCount) {
+        int count = Math.min(mPrefetchCount, maxCount);
+        if (count <= 0 || mDirection == 0 || mParent == null) return;
+        mNextPosition = mDirection > 0 ? lastVisiblePosition + 1 : firstVisiblePosition - 1;
+        mRemaining = count;
+        if (!mScheduled) {
+            mScheduled = true;
+            Looper.myQueue().addIdleHandler(this);
+        }
+    }
+
+    @Override
+    public boolean queueIdle() {
+        RecyclerView parent = mParent;
+        if (parent == null || parent.getAdapter() == null || !parent.isAttachedToWindow()) {
+            mScheduled = false;
+            return false;
+        }
+        int itemCount = parent.getAdapter().getItemCount();
+        long deadline = SystemClock.uptimeMillis() + FRAME_BUDGET_MS;
+        while (mRemaining > 0 && mNextPosition >= 0 && mNextPosition < itemCount) {
+            mTarget.prefetch(parent, mNextPosition);
+            mNextPosition += mDirection;
+            mRemaining--;
+            if (SystemClock.uptimeMillis() >= deadline) {
+                break;
+            }
+        }
+        if (mNextPosition < 0 || mNextPosition >= itemCount) {
+            mRemaining = 0;
+        }
+        // 返回true则保留该IdleHandler，下一次空闲时继续预取
+        mScheduled = mRemaining > 0;
+        return mScheduled;
+    }
+}
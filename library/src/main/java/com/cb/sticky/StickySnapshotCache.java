@@ -0,0 +1,70 @@
+package com.cb.sticky;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.util.LruCache;
+import android.view.View;
+
+/**
+ * sticky view的位图快照缓存
+ * <p>
+ * ①每个sticky数据只绑定、绘制一次到位图上，之后的帧直接绘制该位图
+ * ②按照位图占用的字节数做LRU淘汰，总大小不超过设置的上限；单张位图超过上限的视图不做快照，由调用方直接绘制
+ * ③以sticky数据对象为key，数据被刷新或者被移出缓存时需要调用{@link #remove(Object)}
+ */
+class StickySnapshotCache {
+    private final LruCache<Object, Bitmap> mCache;
+
+    /**
+     * @param maxBytes 缓存位图占用的最大字节数
+     */
+    StickySnapshotCache(int maxBytes) {
+        mCache = new LruCache<Object, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(Object key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+    }
+
+    Bitmap get(Object key) {
+        return mCache.get(key);
+    }
+
+    /**
+     * 将已经measure&layout过的视图绘制到位图上，并放入缓存
+     *
+     * @return 视图没有尺寸，或者位图超过缓存上限时返回null
+     */
+    Bitmap snapshot(Object key, View view) {
+        int width = view.getMeasuredWidth();
+        int height = view.getMeasuredHeight();
+        // ARGB_8888每个像素4个字节；放入缓存之后会被立刻淘汰的位图不需要创建
+        if (width <= 0 || height <= 0 || (long) width * height * 4 > mCache.maxSize()) {
+            return null;
+        }
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        view.draw(new Canvas(bitmap));
+        mCache.put(key, bitmap);
+        return bitmap;
+    }
+
+    void remove(Object key) {
+        mCache.remove(key);
+    }
+
+    void clear() {
+        mCache.evictAll();
+    }
+
+    /**
+     * 当前缓存位图占用的字节数
+     */
+    int size() {
+        return mCache.size();
+    }
+
+    int maxSize() {
+        return mCache.maxSize();
+    }
+}
@@ -0,0 +1,218 @@
+package com.cb.sticky;
+
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * sticky view的缓存池，类似于RecyclerView的RecycledViewPool
+ * <p>
+ * ①按照viewType分别缓存已经绑定过数据的视图，默认的最大数量至少为{@link #DEFAULT_MAX_VIEWS}个，
+ * 并随每帧同时需要的视图数量(可见的sticky view + 悬停视图)自动扩大，否则按照LRU复用时每帧都会重新绑定；也可以按viewType单独设置
+ * ②获取视图时优先返回已经绑定了该数据的视图，此时不需要重新bind&measure
+ * ③没有命中时，创建新的视图或者复用该viewType下最久未使用的视图
+ * ④预取时只measure的视图使用每种viewType独立的一个视图({@link #obtainScratch(int)})，不占用、不打乱LRU缓存的视图
+ */
+class StickyViewPool {
+    static final int DEFAULT_MAX_VIEWS = 4;
+
+    /**
+     * 创建sticky view
+     */
+    interface ViewFactory {
+        View createView(int viewType);
+    }
+
+    /**
+     * 缓存池中的视图及其绑定的数据
+     */
+    static class Holder {
+        final View view;
+        final int viewType;
+        /**
+         * 当前绑定的数据，为null时需要重新绑定
+         */
+        Object boundData;
+        /**
+         * 绑定数据时measure所用的宽度
+         */
+        int boundWidth;
+        long lastUsed;
+
+        Holder(View view, int viewType) {
+            this.view = view;
+            this.viewType = viewType;
+        }
+
+        /**
+         * 是否已经绑定了该数据，并且按照该宽度measure过
+         */
+        boolean isBound(Object data, int width) {
+            return boundData == data && boundWidth == width;
+        }
+
+        void bind(Object data, int width) {
+            boundData = data;
+            boundWidth = width;
+        }
+    }
+
+    private final ViewFactory mFactory;
+    private final SparseArray<ArrayList<Holder>> mScrap = new SparseArray<>();
+    /**
+     * viewType -> 预取时measure用的视图
+     */
+    private final SparseArray<Holder> mScratch = new SparseArray<>();
+    /**
+     * 单独设置过的viewType -> 最大数量
+     */
+    private final SparseIntArray mMaxViews = new SparseIntArray();
+    /**
+     * 没有单独设置的viewType的最大数量
+     */
+    private int mDefaultMaxViews = DEFAULT_MAX_VIEWS;
+    private long mUseCounter;
+
+    StickyViewPool(ViewFactory factory) {
+        mFactory = factory;
+    }
+
+    /**
+     * 设置某种viewType最多缓存的视图数量
+     */
+    void setMaxViews(int viewType, int max) {
+        max = Math.max(max, 1);
+        mMaxViews.put(viewType, max);
+        ArrayList<Holder> holders = mScrap.get(viewType);
+        while (holders != null && holders.size() > max) {
+            holders.remove(findLeastRecentlyUsed(holders));
+        }
+    }
+
+    /**
+     * 一帧内同时需要count个视图时，扩大没有单独设置的viewType的最大数量，只会增大
+     */
+    void ensureDefaultMaxViews(int count) {
+        if (count > mDefaultMaxViews) {
+            mDefaultMaxViews = count;
+        }
+    }
+
+    /**
+     * 放入一个已经创建好的视图
+     */
+    Holder put(int viewType, View view) {
+        Holder holder = new Holder(view, viewType);
+        holdersOf(viewType).add(holder);
+        return holder;
+    }
+
+    /**
+     * 获取用于展示data的视图，返回的holder如果没有绑定该数据({@link Holder#isBound(Object, int)})，需要调用方重新绑定
+     *
+     * @return 无法创建视图时返回null
+     */
+    Holder obtain(int viewType, Object data) {
+        ArrayList<Holder> holders = holdersOf(viewType);
+        Holder target = null;
+        for (int i = 0, size = holders.size(); i < size; i++) {
+            Holder holder = holders.get(i);
+            if (holder.boundData == data) {
+                target = holder;
+                break;
+            }
+        }
+        if (target == null) {
+            if (holders.size() < mMaxViews.get(viewType, mDefaultMaxViews)) {
+                View view = mFactory.createView(viewType);
+                if (view != null) {
+                    target = new Holder(view, viewType);
+                    holders.add(target);
+                }
+            }
+            if (target == null && !holders.isEmpty()) {
+                target = holders.get(findLeastRecentlyUsed(holders));
+                target.bind(null, 0);
+            }
+        }
+        if (target != null) {
+            target.lastUsed = ++mUseCounter;
+        }
+        return target;
+    }
+
+    /**
+     * 获取该viewType专门用于预取measure的视图，不参与LRU复用，也不计入最大数量
+     *
+     * @return 无法创建视图时返回null
+     */
+    Holder obtainScratch(int viewType) {
+        Holder holder = mScratch.get(viewType);
+        if (holder == null) {
+            View view = mFactory.createView(viewType);
+            if (view == null) {
+                return null;
+            }
+            holder = new Holder(view, viewType);
+            mScratch.put(viewType, holder);
+        }
+        return holder;
+    }
+
+    /**
+     * 数据失效，解除已绑定该数据的视图
+     */
+    void unbind(Object data) {
+        for (int i = 0, size = mScrap.size(); i < size; i++) {
+            ArrayList<Holder> holders = mScrap.valueAt(i);
+            for (int j = 0, count = holders.size(); j < count; j++) {
+                Holder holder = holders.get(j);
+                if (holder.boundData == data) {
+                    holder.bind(null, 0);
+                }
+            }
+        }
+        for (int i = 0, size = mScratch.size(); i < size; i++) {
+            Holder holder = mScratch.valueAt(i);
+            if (holder.boundData == data) {
+                holder.bind(null, 0);
+            }
+        }
+    }
+
+    /**
+     * 解除所有视图绑定的数据，视图本身依然保留
+     */
+    void unbindAll() {
+        for (int i = 0, size = mScrap.size(); i < size; i++) {
+            ArrayList<Holder> holders = mScrap.valueAt(i);
+            for (int j = 0, count = holders.size(); j < count; j++) {
+                holders.get(j).bind(null, 0);
+            }
+        }
+        for (int i = 0, size = mScratch.size(); i < size; i++) {
+            mScratch.valueAt(i).bind(null, 0);
+        }
+    }
+
+    private ArrayList<Holder> holdersOf(int viewType) {
+        ArrayList<Holder> holders = mScrap.get(viewType);
+        if (holders == null) {
+            holders = new ArrayList<>(mMaxViews.get(viewType, mDefaultMaxViews));
+            mScrap.put(viewType, holders);
+        }
+        return holders;
+    }
+
+    private static int findLeastRecentlyUsed(ArrayList<Holder> holders) {
+        int index = 0;
+        for (int i = 1, size = holders.size(); i < size; i++) {
+            if (holders.get(i).lastUsed < holders.get(index).lastUsed) {
+                index = i;
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,40 @@
+package com.cb.sticky;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * 各个decoration共用的sticky view测量以及点击拦截
+ */
+final class StickyViews {
+    private StickyViews() {
+    }
+
+    /**
+     * 宽度与RecyclerView一致，高度使用layout params中固定的高度，没有则按内容测量；测量之后布局在(0, 0)
+     */
+    static void measureLayout(View stickyView, int parentWidth) {
+        int widthSpec = View.MeasureSpec.makeMeasureSpec(parentWidth, View.MeasureSpec.EXACTLY);
+        stickyView.measure(widthSpec, makeHeightSpec(stickyView));
+        stickyView.layout(0, 0, stickyView.getMeasuredWidth(), stickyView.getMeasuredHeight());
+    }
+
+    static int makeHeightSpec(View stickyView) {
+        ViewGroup.LayoutParams layoutParams = stickyView.getLayoutParams();
+        if (layoutParams != null && layoutParams.height > 0) {
+            return View.MeasureSpec.makeMeasureSpec(layoutParams.height, View.MeasureSpec.EXACTLY);
+        }
+        return View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+    }
+
+    /**
+     * 拦截RecyclerView顶部[0, bottom)区域的点击事件，防止sticky view区域会响应点击事件
+     */
+    static void interceptTouchEvent(RecyclerView parent, int bottom) {
+        if (parent instanceof MyRecyclerView) {
+            ((MyRecyclerView) parent).interceptTouchEvent(0, 0, parent.getWidth(), bottom);
+        }
+    }
+}
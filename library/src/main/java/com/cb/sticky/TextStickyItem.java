@@ -0,0 +1,342 @@
+package com.cb.sticky;
+
+import android.os.Build;
+import android.os.Process;
+import android.text.Layout;
+import android.text.PrecomputedText;
+import android.text.StaticLayout;
+import android.text.TextDirectionHeuristic;
+import android.text.TextDirectionHeuristics;
+import android.text.TextPaint;
+import android.util.LruCache;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 纯文本sticky view的{@link LinearStickyDecoration.IStickyItem}，文本的排版在后台线程完成
+ * <p>
+ * ①第一次绑定视图时记录TextView的排版参数(画笔、padding、行距、文本方向、两端对齐等)，之后预取的sticky数据在后台线程按照已知的宽度
+ * 生成{@link StaticLayout}(API 28及以上同时生成{@link PrecomputedText})，得到sticky view的高度
+ * ②decoration获取高度时直接使用预先计算的结果，不需要在主线程bind & measure；绑定视图时使用PrecomputedText，measure时不再重新排版
+ * ③只适用于样式全部通过TextView属性设置的纯文本视图，样式变化之后需要调用{@link #invalidateTextLayouts()}
+ */
+public abstract class TextStickyItem<StickData extends LinearStickyDecoration.BaseStickyData>
+        extends LinearStickyDecoration.SimpleStickyItem<TextView, StickData> {
+    static final int DEFAULT_MAX_TEXTS = 256;
+
+    private static ExecutorService sDefaultExecutor;
+
+    private final Executor mExecutor;
+    /**
+     * 文本 -> (宽度 -> 排版结果)，可以在后台线程写入，读写都需要同步
+     */
+    private final LruCache<CharSequence, SparseArray<TextLayoutResult>> mResults = new LruCache<>(DEFAULT_MAX_TEXTS);
+    /**
+     * 从TextView中记录的排版参数，为null时还没有绑定过视图，无法预先排版
+     */
+    private volatile TextLayoutSpec mSpec;
+
+    public TextStickyItem() {
+        this(null);
+    }
+
+    /**
+     * @param executor 执行排版的线程池，为null时使用内部的单线程线程池
+     */
+    public TextStickyItem(Executor executor) {
+        mExecutor = executor != null ? executor : defaultExecutor();
+    }
+
+    /**
+     * sticky view上展示的文本
+     */
+    protected abstract CharSequence getStickyText(StickData data);
+
+    /**
+     * 使用文本更新视图，继承时需要调用super
+     */
+    @Override
+    public void bindView(TextView view, StickData data) {
+        if (mSpec == null) {
+            mSpec = TextLayoutSpec.from(view);
+        }
+        CharSequence text = getStickyText(data);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P && text != null) {
+            Object precomputedText = peekPrecomputedText(text);
+            if (precomputedText != null && setPrecomputedText(view, precomputedText)) {
+                return;
+            }
+        }
+        view.setText(text);
+    }
+
+    /**
+     * 丢弃记录的排版参数以及所有的排版结果，TextView的样式(如字体大小)变化之后调用
+     */
+    public void invalidateTextLayouts() {
+        mSpec = null;
+        synchronized (mResults) {
+            mResults.evictAll();
+        }
+    }
+
+    /**
+     * 在主线程调用：在后台线程按照宽度排版该数据的文本，已经排版过或者还没有记录排版参数时直接返回
+     *
+     * @param width sticky view的宽度
+     */
+    void precompute(StickData data, int width) {
+        final TextLayoutSpec spec = mSpec;
+        final CharSequence text = data != null ? getStickyText(data) : null;
+        if (spec == null || text == null || width <= 0) return;
+        final int textWidth = spec.width(width);
+        if (textWidth <= 0) return;
+        synchronized (mResults) {
+            SparseArray<TextLayoutResult> results = mResults.get(text);
+            if (results != null && results.indexOfKey(textWidth) >= 0) return;
+            if (results == null) {
+                results = new SparseArray<>(1);
+                mResults.put(text, results);
+            }
+            // 先占位，防止重复提交
+            results.put(textWidth, TextLayoutResult.PENDING);
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                TextLayoutResult result = spec.layout(text, textWidth);
+                synchronized (mResults) {
+                    SparseArray<TextLayoutResult> results = mResults.get(text);
+                    // 排版期间样式发生了变化，丢弃过期的结果
+                    if (mSpec != spec || results == null) return;
+                    results.put(textWidth, result);
+                }
+            }
+        });
+    }
+
+    /**
+     * 预先计算的sticky view高度
+     *
+     * @param width sticky view的宽度
+     * @return 还没有排版完成时返回0
+     */
+    int getPrecomputedHeight(StickData data, int width) {
+        TextLayoutSpec spec = mSpec;
+        CharSequence text = data != null ? getStickyText(data) : null;
+        if (spec == null || text == null) return 0;
+        TextLayoutResult result = peekResult(text, spec.width(width));
+        return result != null ? result.height : 0;
+    }
+
+    private TextLayoutResult peekResult(CharSequence text, int textWidth) {
+        synchronized (mResults) {
+            SparseArray<TextLayoutResult> results = mResults.get(text);
+            return results != null ? results.get(textWidth) : null;
+        }
+    }
+
+    /**
+     * PrecomputedText与排版宽度无关，任意宽度的结果都可以使用
+     */
+    private Object peekPrecomputedText(CharSequence text) {
+        synchronized (mResults) {
+            SparseArray<TextLayoutResult> results = mResults.get(text);
+            if (results == null) return null;
+            for (int i = 0, size = results.size(); i < size; i++) {
+                if (results.valueAt(i).precomputedText != null) {
+                    return results.valueAt(i).precomputedText;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static boolean setPrecomputedText(TextView view, Object precomputedText) {
+        try {
+            view.setText((PrecomputedText) precomputedText);
+            return true;
+        } catch (IllegalArgumentException e) {
+            // 视图的排版参数与记录的不一致(如：多个样式不同的视图)，使用普通文本
+            return false;
+        }
+    }
+
+    private static synchronized Executor defaultExecutor() {
+        if (sDefaultExecutor == null) {
+            sDefaultExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                    Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            r.run();
+                        }
+                    }, "StickyTextLayout");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sDefaultExecutor;
+    }
+
+    /**
+     * 一次排版的结果
+     */
+    private static class TextLayoutResult {
+        static final TextLayoutResult PENDING = new TextLayoutResult(0, null);
+
+        final int height;
+        /**
+         * API 28及以上为{@link PrecomputedText}
+         */
+        final Object precomputedText;
+
+        TextLayoutResult(int height, Object precomputedText) {
+            this.height = height;
+            this.precomputedText = precomputedText;
+        }
+    }
+
+    /**
+     * 在主线程从TextView中复制的排版参数，之后只在后台线程读取
+     */
+    private static class TextLayoutSpec {
+        final TextPaint paint;
+        final int paddingLeft;
+        final int paddingRight;
+        final int paddingTop;
+        final int paddingBottom;
+        final float spacingMult;
+        final float spacingAdd;
+        final boolean includePad;
+        final int maxLines;
+        final int minHeight;
+        /**
+         * layout params中固定的高度，大于0时不需要排版
+         */
+        final int fixedHeight;
+        final int breakStrategy;
+        final int hyphenationFrequency;
+        final TextDirectionHeuristic textDirection;
+        final int justificationMode;
+        final boolean fallbackLineSpacing;
+        /**
+         * API 28及以上为{@link PrecomputedText.Params}
+         */
+        final Object textMetricsParams;
+
+        private TextLayoutSpec(TextView view) {
+            paint = new TextPaint(view.getPaint());
+            paddingLeft = view.getCompoundPaddingLeft();
+            paddingRight = view.getCompoundPaddingRight();
+            paddingTop = view.getCompoundPaddingTop();
+            paddingBottom = view.getCompoundPaddingBottom();
+            spacingMult = view.getLineSpacingMultiplier();
+            spacingAdd = view.getLineSpacingExtra();
+            includePad = view.getIncludeFontPadding();
+            maxLines = view.getMaxLines();
+            minHeight = Math.max(view.getMinHeight(), view.getMinimumHeight());
+            ViewGroup.LayoutParams layoutParams = view.getLayoutParams();
+            fixedHeight = layoutParams != null && layoutParams.height > 0 ? layoutParams.height : 0;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                breakStrategy = view.getBreakStrategy();
+                hyphenationFrequency = view.getHyphenationFrequency();
+            } else {
+                breakStrategy = 0;
+                hyphenationFrequency = 0;
+            }
+            textDirection = resolveTextDirection(view);
+            justificationMode = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O ? view.getJustificationMode() : 0;
+            fallbackLineSpacing = Build.VERSION.SDK_INT >= Build.VERSION_CODES.P && view.isFallbackLineSpacing();
+            textMetricsParams = Build.VERSION.SDK_INT >= Build.VERSION_CODES.P ? view.getTextMetricsParams() : null;
+        }
+
+        static TextLayoutSpec from(TextView view) {
+            return new TextLayoutSpec(view);
+        }
+
+        /**
+         * 与TextView排版时使用的文本方向一致，API 29以下按照TextView内部的规则由textDirection以及layoutDirection推导
+         */
+        private static TextDirectionHeuristic resolveTextDirection(TextView view) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                return view.getTextDirectionHeuristic();
+            }
+            boolean rtl = view.getLayoutDirection() == View.LAYOUT_DIRECTION_RTL;
+            switch (view.getTextDirection()) {
+                case View.TEXT_DIRECTION_ANY_RTL:
+                    return TextDirectionHeuristics.ANYRTL_LTR;
+                case View.TEXT_DIRECTION_LTR:
+                    return TextDirectionHeuristics.LTR;
+                case View.TEXT_DIRECTION_RTL:
+                    return TextDirectionHeuristics.RTL;
+                case View.TEXT_DIRECTION_LOCALE:
+                    return TextDirectionHeuristics.LOCALE;
+                case View.TEXT_DIRECTION_FIRST_STRONG_LTR:
+                    return TextDirectionHeuristics.FIRSTSTRONG_LTR;
+                case View.TEXT_DIRECTION_FIRST_STRONG_RTL:
+                    return TextDirectionHeuristics.FIRSTSTRONG_RTL;
+                default:
+                    return rtl ? TextDirectionHeuristics.FIRSTSTRONG_RTL : TextDirectionHeuristics.FIRSTSTRONG_LTR;
+            }
+        }
+
+        /**
+         * sticky view宽度对应的文本排版宽度
+         */
+        int width(int viewWidth) {
+            return viewWidth - paddingLeft - paddingRight;
+        }
+
+        /**
+         * 在后台线程排版，高度与TextView在宽度EXACTLY、高度UNSPECIFIED时measure的结果一致
+         */
+        @SuppressWarnings("deprecation")
+        TextLayoutResult layout(CharSequence text, int textWidth) {
+            if (fixedHeight > 0) {
+                return new TextLayoutResult(fixedHeight, null);
+            }
+            Object precomputedText = null;
+            CharSequence layoutText = text;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+                precomputedText = PrecomputedText.create(text, (PrecomputedText.Params) textMetricsParams);
+                layoutText = (PrecomputedText) precomputedText;
+            }
+            StaticLayout layout;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                StaticLayout.Builder builder = StaticLayout.Builder
+                        .obtain(layoutText, 0, layoutText.length(), paint, textWidth)
+                        .setAlignment(Layout.Alignment.ALIGN_NORMAL)
+                        .setTextDirection(textDirection)
+                        .setLineSpacing(spacingAdd, spacingMult)
+                        .setIncludePad(includePad)
+                        .setBreakStrategy(breakStrategy)
+                        .setHyphenationFrequency(hyphenationFrequency);
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                    builder.setJustificationMode(justificationMode);
+                }
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+                    builder.setUseLineSpacingFromFallbacks(fallbackLineSpacing);
+                }
+                layout = builder.build();
+            } else {
+                layout = new StaticLayout(layoutText, paint, textWidth, Layout.Alignment.ALIGN_NORMAL,
+                        spacingMult, spacingAdd, includePad);
+            }
+            int lineCount = layout.getLineCount();
+            int textHeight = maxLines > 0 && maxLines < lineCount ? layout.getLineTop(maxLines) : layout.getHeight();
+            int height = Math.max(textHeight + paddingTop + paddingBottom, minHeight);
+            return new TextLayoutResult(height, precomputedText);
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package com.cb.sticky.library;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.cb.sticky.DividerDecoration;
+import com.cb.sticky.LinearStickyDecoration;
+import com.cb.sticky.MyRecyclerView;
+import com.cb.sticky.StickyFrameMetrics;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 在JVM上回放滑动序列(手指拖动、松手之后的惯性滑动、跳转、滑动中刷新数据)，校验每帧bind、measure以及数据接口的调用次数不超过预算
+ * <p>
+ * ①RecyclerView挂载在window上，拖动通过触摸事件分发，惯性滑动由RecyclerView自身的fling(OverScroller)按帧产生位移
+ * ②每帧之间推进主线程的时钟并执行空闲任务，预取以及section索引的分批建立都会真实执行，预取计入下一帧的统计
+ * ③在section大小均匀、大小不一的两组数据上分别回放
+ */
+@RunWith(ParameterizedRobolectricTestRunner.class)
+@Config(sdk = 28)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class StickyScrollReplayTest {
+    private static final int WIDTH = 720;
+    private static final int HEIGHT = 1280;
+    private static final int ITEM_COUNT = 2000;
+    private static final int ITEM_HEIGHT = 100;
+    private static final int STICKY_HEIGHT = 60;
+    private static final int PREFETCH_COUNT = 10;
+    private static final long FRAME_MS = 16;
+    /**
+     * 一次惯性滑动最多回放的帧数
+     */
+    private static final int MAX_FLING_FRAMES = 600;
+
+    /**
+     * 手指每帧的位移(像素，正数为手指向上、列表向下滑动)：慢速阅读时的拖动，中间有停顿
+     */
+    private static final int[] SLOW_DRAG = {
+            0, 3, 6, 9, 12, 10, 8, 8, 7, 0, 0, 0, 4, 8, 11, 13, 12, 9, 6, 3, 0, 0, 2, 5, 9, 12, 14, 13, 10, 6, 2, 0
+    };
+    /**
+     * 快速向上甩动，松手时有较大的速度
+     */
+    private static final int[] QUICK_FLICK = {
+            0, 12, 30, 55, 80, 95, 90
+    };
+    /**
+     * 拖动过程中改变方向
+     */
+    private static final int[] REVERSE_DRAG = {
+            0, 10, 22, 30, 24, 12, 0, -10, -24, -36, -30, -18, -6, 0
+    };
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "{0}")
+    public static List<Object[]> datasets() {
+        return Arrays.asList(
+                new Object[]{"uniform sections", new int[]{7}},
+                new Object[]{"mixed sections", new int[]{3, 12, 5, 30, 4, 9, 18, 6}});
+    }
+
+    private final int[] mSectionSizes;
+    private final int mMinSectionSize;
+    private final int mMaxSectionSize;
+    /**
+     * 稳定滑动时每帧的预算：最多有一个新的sticky view滑入屏幕，加上预取新进入预取区间的section
+     */
+    private final Budget mSteadyBudget;
+    /**
+     * 跳转、全量刷新之后的第一帧需要为所有可见的section重新获取数据
+     */
+    private final Budget mReloadBudget;
+    /**
+     * 首次布局、全量刷新之后section索引在空闲时分批建立(不计入帧内统计)，第一帧只需要询问可见的position，
+     * 以及在未探测的区间内向前查找悬停section的起点、向后查找下一个section的起点，各自最多一个section
+     */
+    private final Budget mRebuildBudget;
+
+    private final List<FrameRecord> mFrames = new ArrayList<>();
+    private MyRecyclerView mRecyclerView;
+    private ItemAdapter mAdapter;
+    private LinearStickyDecoration mStickyDecoration;
+    private Canvas mCanvas;
+    private Budget mNextBudget;
+    private String mStep;
+
+    public StickyScrollReplayTest(String name, int[] sectionSizes) {
+        mSectionSizes = sectionSizes;
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (int size : sectionSizes) {
+            min = Math.min(min, size);
+            max = Math.max(max, size);
+        }
+        mMinSectionSize = min;
+        mMaxSectionSize = max;
+        // 预取区间内最多的section起点数量，每个都需要bind&measure一次，并询问一次数据接口
+        int prefetchSections = PREFETCH_COUNT / mMinSectionSize + 1;
+        int visibleItems = HEIGHT / ITEM_HEIGHT;
+        int visibleSections = visibleItems / mMinSectionSize + 3;
+        mSteadyBudget = new Budget(2 + prefetchSections, 2 + prefetchSections, 4 + prefetchSections);
+        mReloadBudget = new Budget(visibleSections + prefetchSections, visibleSections + prefetchSections,
+                visibleItems + 4 + prefetchSections);
+        mRebuildBudget = new Budget(mReloadBudget.bindView, mReloadBudget.measure,
+                mReloadBudget.dataProvider + 2 * mMaxSectionSize);
+        mNextBudget = mRebuildBudget;
+    }
+
+    @Before
+    public void setUp() {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        mCanvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+        mRecyclerView = new MyRecyclerView(activity);
+        mRecyclerView.setLayoutManager(new LinearLayoutManager(activity));
+        mAdapter = new ItemAdapter(mSectionSizes);
+        mStickyDecoration = new LinearStickyDecoration(mAdapter,
+                new LinearStickyDecoration.SimpleStickyItem<TextView, StickyData>() {
+                    @Override
+                    public TextView createStickyView() {
+                        TextView view = new TextView(mRecyclerView.getContext());
+                        view.setLayoutParams(new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                                STICKY_HEIGHT));
+                        return view;
+                    }
+
+                    @Override
+                    public void bindView(TextView view, StickyData data) {
+                        view.setText(data.text);
+                    }
+
+                    @Override
+                    public StickyData obtainInsideDataByPosition(int position) {
+                        return mAdapter.getStickyData(position);
+                    }
+                });
+        mStickyDecoration.setOnFrameMetricsListener(new LinearStickyDecoration.OnFrameMetricsListener() {
+            @Override
+            public void onFrameMetrics(StickyFrameMetrics metrics) {
+                mFrames.add(new FrameRecord(mStep, mNextBudget, metrics));
+                mNextBudget = mSteadyBudget;
+            }
+        });
+        // 预取是两帧之间的工作，计入下一帧的预算
+        mStickyDecoration.setPrefetchCount(PREFETCH_COUNT);
+        mRecyclerView.addItemDecoration(new DividerDecoration(activity));
+        mRecyclerView.addItemDecoration(mStickyDecoration);
+        mRecyclerView.setAdapter(mAdapter);
+        FrameLayout root = new FrameLayout(activity);
+        activity.setContentView(root);
+        // 固定尺寸，不受测试window大小的影响
+        root.addView(mRecyclerView, new FrameLayout.LayoutParams(WIDTH, HEIGHT));
+        relayout();
+        drawFrame("first layout");
+    }
+
+    @Test
+    public void slowDrag() {
+        drag("slow drag down", SLOW_DRAG, 1);
+        drag("slow drag up", SLOW_DRAG, -1);
+        assertWithinBudget();
+    }
+
+    @Test
+    public void fling() {
+        drag("flick down", QUICK_FLICK, 1);
+        drag("flick up", QUICK_FLICK, -1);
+        fling("fling down", 9000);
+        fling("fling up", -9000);
+        assertWithinBudget();
+    }
+
+    @Test
+    public void reverseDrag() {
+        drag("drag down", SLOW_DRAG, 1);
+        drag("reverse drag", REVERSE_DRAG, 1);
+        drag("reverse drag up", REVERSE_DRAG, -1);
+        assertWithinBudget();
+    }
+
+    @Test
+    public void jumpToPosition() {
+        int[] targets = {1500, 20, 999, ITEM_COUNT - 1, 0};
+        for (int target : targets) {
+            mRecyclerView.scrollToPosition(target);
+            mNextBudget = mReloadBudget;
+            relayout();
+            nextFrame("jump to " + target);
+            drag("drag after jump to " + target, SLOW_DRAG, target == 0 ? 1 : -1);
+        }
+        assertWithinBudget();
+    }
+
+    @Test
+    public void refreshWhileScrolling() {
+        drag("flick before refresh", QUICK_FLICK, 1);
+        // 局部刷新可见区域内的一个section
+        int first = ((LinearLayoutManager) mRecyclerView.getLayoutManager()).findFirstVisibleItemPosition();
+        mAdapter.notifyItemRangeChanged(first, mMinSectionSize);
+        mNextBudget = mReloadBudget;
+        drag("drag after range change", SLOW_DRAG, 1);
+        // 全量刷新
+        mAdapter.notifyDataSetChanged();
+        mNextBudget = mRebuildBudget;
+        relayout();
+        nextFrame("notifyDataSetChanged");
+        drag("flick after full refresh", QUICK_FLICK, -1);
+        assertWithinBudget();
+    }
+
+    /**
+     * 按照手指每帧的位移分发触摸事件，每个事件之后回放一帧；松手之后回放RecyclerView产生的惯性滑动，直到停止
+     *
+     * @param direction 1：手指向上(列表向下滑动)，-1：相反
+     */
+    private void drag(String step, int[] fingerDeltas, int direction) {
+        long downTime = SystemClock.uptimeMillis();
+        float x = WIDTH / 2f;
+        float y = direction > 0 ? HEIGHT * 0.8f : HEIGHT * 0.2f;
+        dispatchTouch(downTime, MotionEvent.ACTION_DOWN, x, y);
+        for (int delta : fingerDeltas) {
+            nextFrame(step);
+            y -= delta * direction;
+            dispatchTouch(downTime, MotionEvent.ACTION_MOVE, x, y);
+        }
+        dispatchTouch(downTime, MotionEvent.ACTION_UP, x, y);
+        settle(step + " (fling)");
+    }
+
+    private void fling(String step, int velocityY) {
+        mRecyclerView.fling(0, velocityY);
+        settle(step);
+    }
+
+    /**
+     * 回放惯性滑动的每一帧，直到RecyclerView停止滑动
+     */
+    private void settle(String step) {
+        for (int i = 0; i < MAX_FLING_FRAMES && mRecyclerView.getScrollState() != RecyclerView.SCROLL_STATE_IDLE;
+             i++) {
+            nextFrame(step);
+        }
+    }
+
+    private void dispatchTouch(long downTime, int action, float x, float y) {
+        MotionEvent event = MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), action, x, y, 0);
+        mRecyclerView.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    /**
+     * 推进一帧的时间：执行到期的动画回调(惯性滑动)以及空闲任务(预取、section索引的分批建立)，之后绘制
+     */
+    private void nextFrame(String step) {
+        shadowOf(Looper.getMainLooper()).idleFor(FRAME_MS, TimeUnit.MILLISECONDS);
+        drawFrame(step);
+    }
+
+    private void relayout() {
+        mRecyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        mRecyclerView.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    private void drawFrame(String step) {
+        mStep = step;
+        mRecyclerView.draw(mCanvas);
+    }
+
+    private void assertWithinBudget() {
+        assertTrue("no frame was recorded", !mFrames.isEmpty());
+        StringBuilder failures = new StringBuilder();
+        for (int i = 0; i < mFrames.size(); i++) {
+            FrameRecord frame = mFrames.get(i);
+            if (!frame.budget.allows(frame)) {
+                failures.append("frame ").append(i).append(" (").append(frame.step).append("): ")
+                        .append(frame).append('\n');
+            }
+        }
+        if (failures.length() > 0) {
+            fail("frames over budget:\n" + failures);
+        }
+    }
+
+    /**
+     * 每帧允许的最大调用次数
+     */
+    private static class Budget {
+        final int bindView;
+        final int measure;
+        final int dataProvider;
+
+        Budget(int bindView, int measure, int dataProvider) {
+            this.bindView = bindView;
+            this.measure = measure;
+            this.dataProvider = dataProvider;
+        }
+
+        boolean allows(FrameRecord frame) {
+            return frame.bindView <= bindView
+                    && frame.measure <= measure
+                    && frame.dataProvider <= dataProvider;
+        }
+    }
+
+    private static class FrameRecord {
+        final String step;
+        final Budget budget;
+        final int bindView;
+        final int measure;
+        final int dataProvider;
+
+        FrameRecord(String step, Budget budget, StickyFrameMetrics metrics) {
+            this.step = step;
+            this.budget = budget;
+            bindView = metrics.getBindViewCount();
+            measure = metrics.getMeasureCount();
+            dataProvider = metrics.getObtainInsideDataCount() + metrics.getObtainHoverDataCount();
+        }
+
+        @Override
+        public String toString() {
+            return "bind=" + bindView + "/" + budget.bindView
+                    + ", measure=" + measure + "/" + budget.measure
+                    + ", dataProvider=" + dataProvider + "/" + budget.dataProvider;
+        }
+    }
+
+    static class StickyData extends LinearStickyDecoration.BaseStickyData {
+        final String text;
+
+        StickyData(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public Object getContentKey() {
+            return text;
+        }
+    }
+
+    static class ItemAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        private final StickyData[] mStickyData = new StickyData[ITEM_COUNT];
+
+        /**
+         * @param sectionSizes 依次循环使用的section大小
+         */
+        ItemAdapter(int[] sectionSizes) {
+            int section = 0;
+            for (int position = 0; position < ITEM_COUNT; position += sectionSizes[section % sectionSizes.length]) {
+                mStickyData[position] = new StickyData("section " + section);
+                section++;
+            }
+        }
+
+        StickyData getStickyData(int position) {
+            return mStickyData[position];
+        }
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            TextView textView = new TextView(parent.getContext());
+            textView.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ITEM_HEIGHT));
+            return new RecyclerView.ViewHolder(textView) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+            ((TextView) holder.itemView).setText(String.valueOf(position));
+        }
+
+        @Override
+        public int getItemCount() {
+            return ITEM_COUNT;
+        }
+    }
+}